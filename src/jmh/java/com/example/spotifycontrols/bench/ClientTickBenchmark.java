@@ -0,0 +1,83 @@
+package com.example.spotifycontrols.bench;
+
+import com.example.spotifycontrols.MainThreadQueue;
+import com.example.spotifycontrols.playback.PlaybackClock;
+import com.example.spotifycontrols.playback.PollPolicy;
+import com.example.spotifycontrols.playback.TrackPrefetcher;
+import com.example.spotifycontrols.playback.XpBarProgress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@code SpotifyControlsMod.onClientTick} costs every tick when no
+ * poll is due: draining an empty {@link MainThreadQueue}, the
+ * {@link PollPolicy} check, the {@link TrackPrefetcher} lead-time check
+ * (far from the track end, so it needs no API), and the XP-bar update through
+ * {@link XpBarProgress}, with the player replaced by a plain field
+ * holder.  The mod's tick should stay in the tens of nanoseconds and
+ * allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientTickBenchmark {
+
+    /** Stand-in for ClientPlayerEntity's two public XP fields. */
+    static final class FakeBar implements XpBarProgress.Bar {
+        float progress = 0.4f;
+        int   level    = 12;
+
+        @Override public float progress() { return progress; }
+        @Override public int   level()    { return level;    }
+        @Override public void  set(float p, int l) { progress = p; level = l; }
+    }
+
+    @Param({"playing", "paused"})
+    public String playback;
+
+    private final MainThreadQueue mainThread = new MainThreadQueue();
+    private final PlaybackClock   clock      = new PlaybackClock();
+    private final PollPolicy      policy     = new PollPolicy();
+    private final TrackPrefetcher prefetcher = new TrackPrefetcher(null, null);
+    private final XpBarProgress   xp         = new XpBarProgress();
+    private final FakeBar         bar        = new FakeBar();
+    private long                  pollsRequested;
+
+    @Setup
+    public void setUp() {
+        long now = System.nanoTime();
+        clock.sync("track", 60_000, 240_000, "playing".equals(playback), now);
+        policy.onSample(clock, now);
+    }
+
+    @Benchmark
+    public float tick() {
+        mainThread.drain();
+
+        long now = System.nanoTime();
+        if (policy.isPollDue(now, PollPolicy.Presence.ACTIVE)) pollsRequested++;
+        prefetcher.maybePrefetch(now, clock.trackEndNanos(), "track");
+
+        xp.update(bar, clock.progressRatio(now));
+        return bar.progress;
+    }
+
+    @Benchmark
+    public boolean pollCheckOnly() {
+        return policy.isPollDue(System.nanoTime(), PollPolicy.Presence.ACTIVE);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.spotifycontrols.bench;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and fails when a benchmark got
+ * slower, or started allocating more, by more than a threshold.
+ * <pre>
+ *   ./gradlew jmh                                    # writes build/results/jmh/results.json
+ *   ./gradlew jmhCompare -Pbaseline=old.json [-Pthreshold=10]
+ * </pre>
+ * Benchmarks are matched by name plus {@code @Param} values; ones present
+ * in only one file are listed but never fail the comparison, and a time
+ * difference inside the two runs' reported score errors is treated as
+ * noise.
+ */
+public final class CompareResults {
+
+    private static final String ALLOC         = "gc.alloc.rate.norm";
+    private static final double ALLOC_SLACK_B = 16;          // ignore a few bytes of JIT wobble
+
+    private record Result(String mode, double score, double error, String unit, double allocBytes) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareResults <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        Map<String, Result> base = read(Path.of(args[0]));
+        Map<String, Result> curr = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100.0 : 0.10;
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> e : new TreeMap<>(curr).entrySet()) {
+            Result now = e.getValue();
+            Result was = base.get(e.getKey());
+            if (was == null) {
+                System.out.printf(Locale.ROOT, "  new   %-70s %10.3f %s%n", e.getKey(), now.score, now.unit);
+                continue;
+            }
+
+            // throughput: higher is better; every other mode measures time
+            double change = "thrpt".equals(now.mode)
+                    ? (was.score - now.score) / was.score
+                    : (now.score - was.score) / was.score;
+            boolean noisy   = Math.abs(now.score - was.score) <= now.error + was.error;
+            boolean slower  = change > threshold && !noisy;
+            boolean heavier = now.allocBytes - was.allocBytes > Math.max(ALLOC_SLACK_B, was.allocBytes * threshold);
+
+            String tag = slower || heavier ? "WORSE" : change < -threshold ? "better" : "same";
+            if (slower || heavier) regressions++;
+            System.out.printf(Locale.ROOT, "  %-6s%-70s %10.3f -> %10.3f %s (%+.1f%%)  alloc %.0f -> %.0f B/op%n",
+                    tag, e.getKey(), was.score, now.score, now.unit, change * 100, was.allocBytes, now.allocBytes);
+        }
+        for (String gone : base.keySet())
+            if (!curr.containsKey(gone)) System.out.println("  gone  " + gone);
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than "
+                    + Math.round(threshold * 100) + "%");
+            System.exit(1);
+        }
+        System.out.println("No regressions above " + Math.round(threshold * 100) + "%");
+    }
+
+    private static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> out = new LinkedHashMap<>();
+        for (JsonElement el : JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonArray()) {
+            JsonObject run = el.getAsJsonObject();
+            StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+            if (run.has("params")) {
+                for (Map.Entry<String, JsonElement> p : new TreeMap<>(run.getAsJsonObject("params").asMap()).entrySet())
+                    key.append(' ').append(p.getKey()).append('=').append(p.getValue().getAsString());
+            }
+            JsonObject primary = run.getAsJsonObject("primaryMetric");
+            double alloc = 0;
+            if (run.has("secondaryMetrics") && run.getAsJsonObject("secondaryMetrics").has(ALLOC))
+                alloc = run.getAsJsonObject("secondaryMetrics").getAsJsonObject(ALLOC).get("score").getAsDouble();
+            out.put(key.toString(), new Result(run.get("mode").getAsString(),
+                    primary.get("score").getAsDouble(),
+                    primary.has("scoreError") && !primary.get("scoreError").isJsonNull()
+                            && primary.get("scoreError").isJsonPrimitive()
+                            && primary.get("scoreError").getAsJsonPrimitive().isNumber()
+                            ? primary.get("scoreError").getAsDouble() : 0,
+                    primary.get("scoreUnit").getAsString(), alloc));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.spotifycontrols.bench;
+
+import com.example.spotifycontrols.art.ImageIngest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one JPEG album cover for a 64 px consumer: plain
+ * {@code ImageIO.read} at full size against {@link ImageIngest}'s
+ * subsampled read.  The gc profiler's {@code gc.alloc.rate.norm} is the
+ * heap each decode allocates — the figure {@code ingest.peakBytes}
+ * reports in the mod.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageIngestBenchmark {
+
+    @Param({"64", "300", "640"})
+    public int size;
+
+    private byte[]      jpeg;
+    private ImageIngest ingest;
+
+    @Setup
+    public void setUp() throws IOException {
+        BufferedImage cover = PaletteBenchmark.Covers.synthetic(size, BufferedImage.TYPE_3BYTE_BGR, 42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(cover, "jpg", out);
+        jpeg   = out.toByteArray();
+        ingest = new ImageIngest();
+    }
+
+    @Benchmark
+    public BufferedImage fullDecode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg));
+    }
+
+    @Benchmark
+    public BufferedImage subsampledDecode() throws IOException {
+        return ingest.decode(jpeg, ImageIngest.TARGET_SIZE);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.spotifycontrols.bench;
+
+import com.example.spotifycontrols.MainThreadQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handing work to the client thread through {@link MainThreadQueue}:
+ * one post plus its share of a drain on a single thread, a coalescing post
+ * that replaces a waiting task, and three producer threads posting while
+ * one consumer drains — the contended case a burst of HTTP completions
+ * creates.  On a machine with fewer than four CPUs the contended group
+ * needs {@code -si false}, or JMH's iteration sync can stall.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MainThreadQueueBenchmark {
+
+    private static final Runnable NOOP = () -> {};
+
+    // unbounded budget and room for every post, so the figures are the queue's own cost
+    private final MainThreadQueue      queue = new MainThreadQueue(Integer.MAX_VALUE, Long.MAX_VALUE);
+    private final MainThreadQueue.Kind toast = new MainThreadQueue.Kind("toast");
+
+    @Benchmark
+    @Group("single")
+    public int postAndDrain() {
+        queue.post(NOOP);
+        return queue.drain();
+    }
+
+    @Benchmark
+    @Group("coalesce")
+    public long postSameKind() {
+        queue.post(toast, NOOP);
+        return queue.coalesced();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public boolean producer() {
+        return queue.post(NOOP);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int consumer() {
+        return queue.drain();
+    }
+}
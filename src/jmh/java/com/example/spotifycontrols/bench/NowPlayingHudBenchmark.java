@@ -0,0 +1,91 @@
+package com.example.spotifycontrols.bench;
+
+import com.example.spotifycontrols.hud.NowPlayingPanel;
+import com.example.spotifycontrols.playback.PlaybackClock;
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One frame of the now-playing HUD through {@link NowPlayingPanel}, with
+ * the draw calls going to a canvas that only sums its arguments and a
+ * fixed-width font in place of Minecraft's.  {@code frame} is the steady
+ * state (same snapshot every frame), {@code newPoll} a fresh snapshot of
+ * the same track every frame (what a poll does), and {@code trackChange}
+ * a different track every frame, so a full relayout each time.  The first
+ * two should stay well under a microsecond with 0 B/op under {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NowPlayingHudBenchmark {
+
+    /** Six pixels a character, like the default font's average. */
+    static final class FixedFonts implements NowPlayingPanel.Fonts<String> {
+        @Override public String line(String text, int maxWidth) {
+            return text.length() * 6 <= maxWidth ? text : text.substring(0, maxWidth / 6 - 1) + "…";
+        }
+        @Override public int width(String line) { return line.length() * 6; }
+        @Override public int lineHeight()       { return 9; }
+    }
+
+    /** Folds every call into one number so none of them can be dropped. */
+    static final class SumCanvas implements NowPlayingPanel.Canvas<String> {
+        long sum;
+
+        @Override public void fill(int x1, int y1, int x2, int y2, int argb) { sum += x1 + y1 + x2 + y2 + argb; }
+        @Override public void text(String line, int x, int y, int argb)     { sum += line.length() + x + y + argb; }
+        @Override public void cover(int x, int y, int size)                 { sum += x + y + size; }
+    }
+
+    private final NowPlayingPanel<String> panel  = new NowPlayingPanel<>(new FixedFonts());
+    private final SumCanvas               canvas = new SumCanvas();
+    private final PlaybackClock           clock  = new PlaybackClock();
+    private PlaybackSnapshot[]            samePoll, sameTrack, changing;
+    private int                           frame;
+
+    @Setup
+    public void setUp() {
+        long now = System.nanoTime();
+        clock.sync("a", 60_000, 240_000, true, now);
+        PlaybackSnapshot a1 = snapshot("a", "Never Gonna Give You Up", "Rick Astley", "#3A6EA5", now);
+        PlaybackSnapshot a2 = snapshot("a", "Never Gonna Give You Up", "Rick Astley", "#3A6EA5", now);
+        PlaybackSnapshot b  = snapshot("b", "Bohemian Rhapsody - Remastered 2011", "Queen", null, now);
+        samePoll  = new PlaybackSnapshot[] { a1, a1 };
+        sameTrack = new PlaybackSnapshot[] { a1, a2 };
+        changing  = new PlaybackSnapshot[] { a1, b  };
+    }
+
+    private static PlaybackSnapshot snapshot(String id, String name, String artists, String colourHex, long now) {
+        return new PlaybackSnapshot(id, name, artists, "album-" + id, null, 240_000, 60_000, true,
+                                    "dev", "Desktop", 50, false, "off", now, colourHex);
+    }
+
+    private long render(PlaybackSnapshot[] snapshots) {
+        PlaybackSnapshot s = snapshots[frame++ & 1];
+        panel.render(canvas, s, clock.positionRatio(System.nanoTime()), true);
+        return canvas.sum;
+    }
+
+    @Benchmark
+    public long frame() { return render(samePoll); }
+
+    @Benchmark
+    public long newPoll() { return render(sameTrack); }
+
+    @Benchmark
+    public long trackChange() { return render(changing); }
+}
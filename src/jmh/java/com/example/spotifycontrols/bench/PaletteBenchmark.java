@@ -0,0 +1,128 @@
+package com.example.spotifycontrols.bench;
+
+import com.example.spotifycontrols.art.Palette;
+import com.example.spotifycontrols.art.PaletteExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PaletteExtractor} against the per-pixel {@code getRGB} +
+ * floating-point HSL loop it replaced, on album-cover-like images in the
+ * {@code TYPE_3BYTE_BGR} layout ImageIO decodes JPEGs into.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteBenchmark {
+
+    @Param({"64", "640"})
+    public int size;
+
+    private BufferedImage    cover;
+    private PaletteExtractor extractor;
+
+    @Setup
+    public void setUp() {
+        cover     = Covers.synthetic(size, BufferedImage.TYPE_3BYTE_BGR, 42);
+        extractor = new PaletteExtractor();
+    }
+
+    @Benchmark
+    public int legacyMostSaturatedPixel() {
+        return legacyExtract(cover);
+    }
+
+    @Benchmark
+    public Palette paletteExtractor() {
+        return extractor.extract(cover);
+    }
+
+    /* ── the previous implementation, kept as the baseline ────────── */
+    static int legacyExtract(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int step = Math.max(1, Math.min(w, h) / 16);
+
+        float bestSat = -1f;
+        int   bestRgb  = 0x1DB954;
+
+        for (int y = 0; y < h; y += step) {
+            for (int x = 0; x < w; x += step) {
+                int rgb = img.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF,
+                    g = (rgb >>  8) & 0xFF,
+                    b =  rgb        & 0xFF;
+
+                float brightness = (r + g + b) / 765f;
+                if (brightness < 0.08f || brightness > 0.92f) continue;
+
+                float sat = hslSaturation(r, g, b);
+                if (sat > bestSat) {
+                    bestSat = sat;
+                    bestRgb = (r << 16) | (g << 8) | b;
+                }
+            }
+        }
+        return bestRgb;
+    }
+
+    static float hslSaturation(int r, int g, int b) {
+        float rf = r / 255f, gf = g / 255f, bf = b / 255f;
+        float max = Math.max(rf, Math.max(gf, bf));
+        float min = Math.min(rf, Math.min(gf, bf));
+        if (max == min) return 0f;
+        float l = (max + min) / 2f;
+        float d = max - min;
+        return d / (l > 0.5f ? 2f - max - min : max + min);
+    }
+
+    /** Deterministic stand-ins for album covers: a gradient, a few flat shapes and grain. */
+    static final class Covers {
+        static BufferedImage synthetic(int size, int type, long seed) {
+            Random rnd = new Random(seed);
+            BufferedImage img = new BufferedImage(size, size, type);
+            int[] shapes = new int[8 * 5];                       // x, y, radius², rgb, unused
+            for (int i = 0; i < shapes.length; i += 5) {
+                shapes[i]     = rnd.nextInt(size);
+                shapes[i + 1] = rnd.nextInt(size);
+                int rad = size / 8 + rnd.nextInt(size / 4 + 1);
+                shapes[i + 2] = rad * rad;
+                shapes[i + 3] = rnd.nextInt(0x1000000);
+            }
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int r = 20 + 140 * y / size, g = 30 + 60 * x / size, b = 90;
+                    for (int i = 0; i < shapes.length; i += 5) {
+                        int dx = x - shapes[i], dy = y - shapes[i + 1];
+                        if (dx * dx + dy * dy < shapes[i + 2]) {
+                            r = (shapes[i + 3] >> 16) & 0xFF;
+                            g = (shapes[i + 3] >> 8) & 0xFF;
+                            b = shapes[i + 3] & 0xFF;
+                        }
+                    }
+                    int n = rnd.nextInt(17) - 8;
+                    r = Math.clamp(r + n, 0, 255);
+                    g = Math.clamp(g + n, 0, 255);
+                    b = Math.clamp(b + n, 0, 255);
+                    img.setRGB(x, y, (r << 16) | (g << 8) | b);
+                }
+            }
+            return img;
+        }
+    }
+}
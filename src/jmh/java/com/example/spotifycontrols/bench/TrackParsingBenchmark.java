@@ -0,0 +1,137 @@
+package com.example.spotifycontrols.bench;
+
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import com.example.spotifycontrols.spotify.SpotifyAPI;
+import com.example.spotifycontrols.spotify.SpotifyJson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming {@link SpotifyJson} readers against the {@code JsonParser}
+ * tree walk they replaced, on realistic pretty-printed payloads (full
+ * {@code available_markets} arrays, three album images, context, actions).
+ *
+ * Run with the {@code gc} profiler (the default in build.gradle) to see
+ * allocation per operation next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackParsingBenchmark {
+
+    private byte[] player;
+    private byte[] searchTracks;
+
+    @Setup
+    public void load() throws IOException {
+        player       = Payloads.bytes("player.json");
+        searchTracks = Payloads.bytes("search-tracks.json");
+    }
+
+    /* ── /me/player — what each poll parses ───────────────────────── */
+    @Benchmark
+    public PlaybackSnapshot playerTree() {
+        return treePlayer(new String(player, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public PlaybackSnapshot playerStreaming() throws IOException {
+        return SpotifyJson.readPlayer(new ByteArrayInputStream(player), 0L);
+    }
+
+    /* ── search, first hit ────────────────────────────────────────── */
+    @Benchmark
+    public String searchTree() {
+        return treeFirstSearchHit(new String(searchTracks, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public List<SpotifyAPI.SearchResult> searchStreaming() throws IOException {
+        return SpotifyJson.readSearchTracks(new ByteArrayInputStream(searchTracks), 1);
+    }
+
+    /* ── the tree-walk way of reading the same fields, as the baseline ── */
+    static PlaybackSnapshot treePlayer(String resp) {
+        JsonObject json = JsonParser.parseString(resp).getAsJsonObject();
+        long    progressMs = json.has("progress_ms") ? json.get("progress_ms").getAsLong() : 0;
+        boolean playing    = json.has("is_playing") && json.get("is_playing").getAsBoolean();
+        boolean shuffle    = json.has("shuffle_state") && json.get("shuffle_state").getAsBoolean();
+        String  repeat     = json.has("repeat_state") ? json.get("repeat_state").getAsString() : "off";
+
+        String deviceId = null, deviceName = null;
+        int volume = -1;
+        if (json.has("device") && json.get("device").isJsonObject()) {
+            JsonObject device = json.getAsJsonObject("device");
+            deviceId   = device.has("id") ? device.get("id").getAsString() : null;
+            deviceName = device.has("name") ? device.get("name").getAsString() : null;
+            volume     = device.has("volume_percent") ? device.get("volume_percent").getAsInt() : -1;
+        }
+
+        String id = null, name = null, artists = "Unknown", albumId = null, imgUrl = null;
+        long durationMs = 1;
+        if (json.has("item") && json.get("item").isJsonObject()) {
+            JsonObject item = json.getAsJsonObject("item");
+            id         = item.has("id") ? item.get("id").getAsString() : null;
+            name       = item.get("name").getAsString();
+            artists    = treeArtistNames(item);
+            durationMs = item.has("duration_ms") ? item.get("duration_ms").getAsLong() : 1;
+            if (item.has("album")) {
+                JsonObject album = item.getAsJsonObject("album");
+                albumId = album.has("id") ? album.get("id").getAsString() : null;
+                if (album.has("images") && album.getAsJsonArray("images").size() > 0) {
+                    var images = album.getAsJsonArray("images");
+                    imgUrl = images.get(images.size() - 1).getAsJsonObject().get("url").getAsString();
+                }
+            }
+        }
+        return new PlaybackSnapshot(id, name, artists, albumId, imgUrl, durationMs, progressMs, playing,
+                deviceId, deviceName, volume, shuffle, repeat, 0L, null);
+    }
+
+    static String treeFirstSearchHit(String resp) {
+        JsonObject tracks = JsonParser.parseString(resp).getAsJsonObject().getAsJsonObject("tracks");
+        if (!tracks.has("items") || tracks.getAsJsonArray("items").isEmpty()) return null;
+        JsonObject track = tracks.getAsJsonArray("items").get(0).getAsJsonObject();
+        return track.get("uri").getAsString() + track.get("name").getAsString() + treeArtistNames(track);
+    }
+
+    static String treeArtistNames(JsonObject trackOrItem) {
+        if (!trackOrItem.has("artists")) return "Unknown";
+        var sb = new StringBuilder();
+        for (var el : trackOrItem.getAsJsonArray("artists")) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(el.getAsJsonObject().get("name").getAsString());
+        }
+        return sb.toString();
+    }
+
+    /** Loads the captured payloads bundled under src/jmh/resources/payloads. */
+    static final class Payloads {
+        static byte[] bytes(String name) throws IOException {
+            try (InputStream in = TrackParsingBenchmark.class.getResourceAsStream("/payloads/" + name)) {
+                if (in == null) throw new IOException("missing payload " + name);
+                return in.readAllBytes();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.spotifycontrols.spotify;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "A, B, C" from a Spotify {@code artists} array: the streaming
+ * {@link SpotifyJson#readArtistNames} against the tree walk it replaced.
+ * Lives in the {@code spotify} package because the reader is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArtistNamesBenchmark {
+
+    @Param({"1", "3", "8"})
+    public int artists;
+
+    private String array;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < artists; i++) {
+            String id = String.format("%022d", i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"external_urls\":{\"spotify\":\"https://open.spotify.com/artist/").append(id).append("\"},")
+              .append("\"href\":\"https://api.spotify.com/v1/artists/").append(id).append("\",")
+              .append("\"id\":\"").append(id).append("\",")
+              .append("\"name\":\"Artist Number ").append(i).append("\",")
+              .append("\"type\":\"artist\",\"uri\":\"spotify:artist:").append(id).append("\"}");
+        }
+        array = sb.append(']').toString();
+    }
+
+    @Benchmark
+    public String tree() {
+        // the previous implementation: parse the array, then join
+        StringBuilder sb = new StringBuilder();
+        for (JsonElement el : JsonParser.parseString(array).getAsJsonArray()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(el.getAsJsonObject().get("name").getAsString());
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String streaming() throws IOException {
+        return SpotifyJson.readArtistNames(new JsonReader(new StringReader(array)));
+    }
+}
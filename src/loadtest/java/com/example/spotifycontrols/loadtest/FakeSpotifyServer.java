@@ -0,0 +1,503 @@
+package com.example.spotifycontrols.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the parts of the Spotify Web API the mod talks to,
+ * on the same {@code com.sun.net.httpserver} stack {@code SpotifyAuth}
+ * uses for its login callback.
+ *
+ * <pre>
+ *   GET  /v1/me/player
+ *   GET  /v1/me/player/currently-playing
+ *   GET  /v1/me/player/queue
+ *   PUT  /v1/me/player/{play,pause,volume,repeat,shuffle}
+ *   POST /v1/me/player/{next,previous}
+ *   GET  /v1/search?q=…&amp;type=track&amp;limit=…
+ *   POST /api/token                        issues a new access token
+ *   GET  /image/{albumId}-{size}.jpg       generated album art
+ * </pre>
+ *
+ * Playback is simulated against the wall clock over a generated catalogue,
+ * so progress advances and tracks roll over as on a real device.  Every
+ * API response is delayed by {@link Config#latencyMs} plus up to
+ * {@link Config#jitterMs}; delays are scheduled, not slept, so hundreds of
+ * slow requests in flight do not need hundreds of threads.  Faults are
+ * drawn per request: an injected 401 rotates the server's token (the
+ * client has to refresh, exactly as when a real token is revoked), a 429
+ * carries {@code Retry-After}, a 5xx is a plain 503.
+ */
+public final class FakeSpotifyServer implements AutoCloseable {
+
+    /** Server knobs; every field can be set from a {@code key=value} argument, see {@link #set}. */
+    public static final class Config {
+        public int    port          = 0;        // 0 = any free port
+        public int    threads       = 4;
+        public long   latencyMs     = 40;
+        public long   jitterMs      = 20;
+        public double p401          = 0;        // probability per API request
+        public double p429          = 0;
+        public double p5xx          = 0;
+        public int    retryAfterSec = 1;
+        public int    markets       = 185;      // available_markets entries per track / album — the bulk of a real payload
+        public int    artists       = 2;
+        public int    catalogue     = 200;      // tracks
+        public int    queueLength   = 20;
+        public int    searchHits    = 20;       // upper bound, the client's limit still applies
+        public int    tokenTtlSec   = 3600;
+
+        /** Sets the field called {@code key}; returns false if there is no such knob. */
+        public boolean set(String key, String value) {
+            switch (key) {
+                case "port"          -> port          = Integer.parseInt(value);
+                case "threads"       -> threads       = Integer.parseInt(value);
+                case "latencyMs"     -> latencyMs     = Long.parseLong(value);
+                case "jitterMs"      -> jitterMs      = Long.parseLong(value);
+                case "p401"          -> p401          = Double.parseDouble(value);
+                case "p429"          -> p429          = Double.parseDouble(value);
+                case "p5xx"          -> p5xx          = Double.parseDouble(value);
+                case "retryAfterSec" -> retryAfterSec = Integer.parseInt(value);
+                case "markets"       -> markets       = Integer.parseInt(value);
+                case "artists"       -> artists       = Integer.parseInt(value);
+                case "catalogue"     -> catalogue     = Integer.parseInt(value);
+                case "queueLength"   -> queueLength   = Integer.parseInt(value);
+                case "searchHits"    -> searchHits    = Integer.parseInt(value);
+                case "tokenTtlSec"   -> tokenTtlSec   = Integer.parseInt(value);
+                default              -> { return false; }
+            }
+            return true;
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.ROOT,
+                    "latency=%d+-%dms p401=%.3f p429=%.3f p5xx=%.3f markets=%d artists=%d catalogue=%d",
+                    latencyMs, jitterMs, p401, p429, p5xx, markets, artists, catalogue);
+        }
+    }
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int[]  IMAGE_SIZES = {640, 300, 64};
+
+    private final Config                   config;
+    private final HttpServer               server;
+    private final ExecutorService          handlers;
+    private final ScheduledExecutorService delays;
+    private final String                   marketsJson;
+    private final Map<String, byte[]>      images = new ConcurrentHashMap<>();
+
+    // simulated device; guarded by this
+    private int     current   = 0;
+    private boolean playing   = true;
+    private long    anchorMs  = System.currentTimeMillis();   // wall time progress 0 corresponds to, while playing
+    private long    pausedAt  = 0;
+    private int     volume    = 50;
+    private String  repeat    = "off";
+    private boolean shuffle   = false;
+
+    private final AtomicInteger tokenVersion = new AtomicInteger();
+    private volatile String     validToken   = token(0);
+
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder injected401 = new LongAdder();
+    private final LongAdder injected429 = new LongAdder();
+    private final LongAdder injected5xx = new LongAdder();
+    private final LongAdder rejected401 = new LongAdder();
+
+    public FakeSpotifyServer(Config config) throws IOException {
+        this.config = config;
+        AtomicInteger n = new AtomicInteger();
+        this.handlers = Executors.newFixedThreadPool(Math.max(1, config.threads), r -> {
+            Thread t = new Thread(r, "FakeSpotify-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.delays = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "FakeSpotify-Delay");
+            t.setDaemon(true);
+            return t;
+        });
+
+        StringBuilder markets = new StringBuilder("[");
+        for (int i = 0; i < config.markets; i++) {
+            if (i > 0) markets.append(',');
+            markets.append('"').append((char) ('A' + i / 26 % 26)).append((char) ('A' + i % 26)).append('"');
+        }
+        this.marketsJson = markets.append(']').toString();
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.port), 128);
+        server.createContext("/v1/",   this::api);
+        server.createContext("/api/token", this::token);
+        server.createContext("/image/", this::image);
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    /* ── addresses ────────────────────────────────────────────────── */
+    public String origin()   { return "http://127.0.0.1:" + server.getAddress().getPort(); }
+    public String baseUrl()  { return origin() + "/v1"; }
+    public String tokenUrl() { return origin() + "/api/token"; }
+
+    /** A token response for the currently valid token, to seed the client's storage with. */
+    public String initialTokenResponse() {
+        return "{\"access_token\":\"" + validToken + "\",\"token_type\":\"Bearer\",\"expires_in\":"
+                + config.tokenTtlSec + ",\"refresh_token\":\"fake-refresh\"}";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        delays.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /* ── /v1 ──────────────────────────────────────────────────────── */
+    private void api(HttpExchange ex) throws IOException {
+        String method = ex.getRequestMethod();
+        String path   = ex.getRequestURI().getPath().substring("/v1".length());
+        count(method + " " + path);
+        drain(ex);
+
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < config.p401) {
+            injected401.increment();
+            validToken = token(tokenVersion.incrementAndGet());          // revoke — the client must refresh
+            respondLater(ex, 401, error(401, "The access token expired"), null);
+            return;
+        }
+        if (auth == null || !auth.equals("Bearer " + validToken)) {
+            rejected401.increment();
+            respondLater(ex, 401, error(401, "Invalid access token"), null);
+            return;
+        }
+        roll -= config.p401;
+        if (roll < config.p429) {
+            injected429.increment();
+            ex.getResponseHeaders().set("Retry-After", Integer.toString(config.retryAfterSec));
+            respondLater(ex, 429, error(429, "API rate limit exceeded"), null);
+            return;
+        }
+        roll -= config.p429;
+        if (roll < config.p5xx) {
+            injected5xx.increment();
+            respondLater(ex, 503, error(503, "Service unavailable"), null);
+            return;
+        }
+
+        Map<String, String> q = query(ex);
+        switch (method + " " + path) {
+            case "GET /me/player"                   -> respondLater(ex, 200, player(true), null);
+            case "GET /me/player/currently-playing" -> respondLater(ex, 200, player(false), null);
+            case "GET /me/player/queue"             -> respondLater(ex, 200, queue(), null);
+            case "GET /search"                      -> search(ex, q);
+            case "PUT /me/player/play"              -> { play();          noContent(ex); }
+            case "PUT /me/player/pause"             -> { pause();         noContent(ex); }
+            case "POST /me/player/next"             -> { jump(1);         noContent(ex); }
+            case "POST /me/player/previous"         -> { jump(-1);        noContent(ex); }
+            case "PUT /me/player/volume"            -> { setVolume(q);    noContent(ex); }
+            case "PUT /me/player/repeat"            -> { setRepeat(q);    noContent(ex); }
+            case "PUT /me/player/shuffle"           -> { setShuffle(q);   noContent(ex); }
+            default                                 -> respondLater(ex, 404, error(404, "Service not found"), null);
+        }
+    }
+
+    private void noContent(HttpExchange ex) { respondLater(ex, 204, null, null); }
+
+    /* ── simulated device ─────────────────────────────────────────── */
+    private synchronized long progress(long now) {
+        long p = playing ? now - anchorMs : pausedAt;
+        long d = durationMs(current);
+        while (playing && p >= d) {                     // rolled into the next track(s)
+            anchorMs += d;
+            current   = (current + 1) % config.catalogue;
+            p        -= d;
+            d         = durationMs(current);
+        }
+        return p;
+    }
+
+    private synchronized void play() {
+        if (!playing) { anchorMs = System.currentTimeMillis() - pausedAt; playing = true; }
+    }
+
+    private synchronized void pause() {
+        if (playing) { pausedAt = progress(System.currentTimeMillis()); playing = false; }
+    }
+
+    private synchronized void jump(int by) {
+        progress(System.currentTimeMillis());
+        current  = Math.floorMod(current + by, config.catalogue);
+        anchorMs = System.currentTimeMillis();
+        pausedAt = 0;
+    }
+
+    private synchronized void setVolume(Map<String, String> q)  { volume  = intParam(q, "volume_percent", volume); }
+    private synchronized void setRepeat(Map<String, String> q)  { repeat  = q.getOrDefault("state", repeat); }
+    private synchronized void setShuffle(Map<String, String> q) { shuffle = "true".equals(q.get("state")); }
+
+    private String player(boolean full) {
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder(8192);
+        synchronized (this) {
+            long p = progress(now);
+            sb.append('{');
+            if (full) {
+                sb.append("\"device\":{\"id\":\"fake-device\",\"is_active\":true,\"is_private_session\":false,"
+                        + "\"is_restricted\":false,\"name\":\"Load test\",\"type\":\"Computer\",\"volume_percent\":")
+                  .append(volume).append(",\"supports_volume\":true},")
+                  .append("\"shuffle_state\":").append(shuffle).append(',')
+                  .append("\"repeat_state\":\"").append(repeat).append("\",");
+            }
+            sb.append("\"timestamp\":").append(now).append(',')
+              .append("\"context\":null,")
+              .append("\"progress_ms\":").append(p).append(',')
+              .append("\"item\":");
+            track(sb, current);
+            sb.append(",\"currently_playing_type\":\"track\",")
+              .append("\"actions\":{\"disallows\":{\"resuming\":true}},")
+              .append("\"is_playing\":").append(playing).append('}');
+        }
+        return sb.toString();
+    }
+
+    private String queue() {
+        int now;
+        synchronized (this) { progress(System.currentTimeMillis()); now = current; }
+        StringBuilder sb = new StringBuilder(8192 * (config.queueLength + 1));
+        sb.append("{\"currently_playing\":");
+        track(sb, now);
+        sb.append(",\"queue\":[");
+        for (int i = 1; i <= config.queueLength; i++) {
+            if (i > 1) sb.append(',');
+            track(sb, (now + i) % config.catalogue);
+        }
+        return sb.append("]}").toString();
+    }
+
+    private void search(HttpExchange ex, Map<String, String> q) {
+        String text  = q.getOrDefault("q", "").toLowerCase(Locale.ROOT);
+        int    limit = Math.min(intParam(q, "limit", 20), config.searchHits);
+        StringBuilder sb = new StringBuilder(8192 * Math.max(1, limit));
+        sb.append("{\"tracks\":{\"href\":\"").append(baseUrl()).append("/search\",\"items\":[");
+        int hits = 0;
+        int seed = Math.floorMod(text.hashCode(), config.catalogue);
+        for (int i = 0; i < config.catalogue && hits < limit; i++) {
+            if (hits > 0) sb.append(',');
+            track(sb, (seed + i) % config.catalogue);
+            hits++;
+        }
+        sb.append("],\"limit\":").append(limit).append(",\"offset\":0,\"total\":").append(config.catalogue).append("}}");
+        String etag = "\"s" + Integer.toHexString((text + '|' + limit).hashCode()) + "\"";
+        if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+            respondLater(ex, 304, null, etag);
+            return;
+        }
+        respondLater(ex, 200, sb.toString(), etag);
+    }
+
+    /* ── generated catalogue ──────────────────────────────────────── */
+    private static long durationMs(int track) { return 150_000 + (track * 7_919L) % 120_000; }
+
+    private static String id(String kind, int n) {
+        StringBuilder sb = new StringBuilder(22);
+        long x = (n + 1) * 0x9E3779B97F4A7C15L ^ kind.hashCode();
+        for (int i = 0; i < 22; i++) {
+            sb.append(ALPHABET.charAt((int) Long.remainderUnsigned(x, ALPHABET.length())));
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        return sb.toString();
+    }
+
+    /** One full track object, shaped like Spotify's — markets, external ids and all. */
+    private void track(StringBuilder sb, int n) {
+        String id      = id("track", n);
+        String albumId = id("album", n / 10);
+        sb.append("{\"album\":{\"album_type\":\"album\",\"artists\":");
+        artists(sb, n);
+        sb.append(",\"available_markets\":").append(marketsJson)
+          .append(",\"external_urls\":{\"spotify\":\"https://open.spotify.com/album/").append(albumId).append("\"},")
+          .append("\"href\":\"").append(baseUrl()).append("/albums/").append(albumId).append("\",")
+          .append("\"id\":\"").append(albumId).append("\",\"images\":[");
+        for (int i = 0; i < IMAGE_SIZES.length; i++) {
+            int s = IMAGE_SIZES[i];
+            if (i > 0) sb.append(',');
+            sb.append("{\"height\":").append(s).append(",\"url\":\"").append(origin()).append("/image/")
+              .append(albumId).append('-').append(s).append(".jpg\",\"width\":").append(s).append('}');
+        }
+        sb.append("],\"name\":\"Album ").append(n / 10).append("\",\"release_date\":\"2020-01-01\",")
+          .append("\"release_date_precision\":\"day\",\"total_tracks\":10,\"type\":\"album\",")
+          .append("\"uri\":\"spotify:album:").append(albumId).append("\"},\"artists\":");
+        artists(sb, n);
+        sb.append(",\"available_markets\":").append(marketsJson)
+          .append(",\"disc_number\":1,\"duration_ms\":").append(durationMs(n))
+          .append(",\"explicit\":false,\"external_ids\":{\"isrc\":\"FAKE").append(100000 + n).append("\"},")
+          .append("\"external_urls\":{\"spotify\":\"https://open.spotify.com/track/").append(id).append("\"},")
+          .append("\"href\":\"").append(baseUrl()).append("/tracks/").append(id).append("\",")
+          .append("\"id\":\"").append(id).append("\",\"is_local\":false,")
+          .append("\"name\":\"Track ").append(n).append("\",\"popularity\":").append(n % 100).append(',')
+          .append("\"preview_url\":null,\"track_number\":").append(n % 10 + 1)
+          .append(",\"type\":\"track\",\"uri\":\"spotify:track:").append(id).append("\"}");
+    }
+
+    private void artists(StringBuilder sb, int n) {
+        sb.append('[');
+        for (int a = 0; a < config.artists; a++) {
+            String id = id("artist", n + a);
+            if (a > 0) sb.append(',');
+            sb.append("{\"external_urls\":{\"spotify\":\"https://open.spotify.com/artist/").append(id).append("\"},")
+              .append("\"href\":\"").append(baseUrl()).append("/artists/").append(id).append("\",")
+              .append("\"id\":\"").append(id).append("\",\"name\":\"Artist ").append((n + a) % 50)
+              .append("\",\"type\":\"artist\",\"uri\":\"spotify:artist:").append(id).append("\"}");
+        }
+        sb.append(']');
+    }
+
+    /* ── /api/token ───────────────────────────────────────────────── */
+    private void token(HttpExchange ex) throws IOException {
+        count(ex.getRequestMethod() + " /api/token");
+        drain(ex);
+        if (!"POST".equals(ex.getRequestMethod())) {
+            respondLater(ex, 405, error(405, "Method not allowed"), null);
+            return;
+        }
+        // a refresh response omits refresh_token, like the real endpoint usually does
+        String fresh = token(tokenVersion.incrementAndGet());
+        validToken = fresh;
+        respondLater(ex, 200, "{\"access_token\":\"" + fresh + "\",\"token_type\":\"Bearer\","
+                + "\"scope\":\"user-read-playback-state user-modify-playback-state\",\"expires_in\":"
+                + config.tokenTtlSec + "}", null);
+    }
+
+    private static String token(int version) { return "fake-access-" + version; }
+
+    /* ── /image ───────────────────────────────────────────────────── */
+    private void image(HttpExchange ex) throws IOException {
+        count("GET /image");
+        String name = ex.getRequestURI().getPath().substring("/image/".length());
+        int dash = name.lastIndexOf('-'), dot = name.lastIndexOf('.');
+        if (dash < 0 || dot < dash) { respond(ex, 404, new byte[0], "text/plain", null); return; }
+        int size = Math.max(1, Math.min(2048, Integer.parseInt(name.substring(dash + 1, dot))));
+        String album = name.substring(0, dash);
+        byte[] jpeg = images.computeIfAbsent(name, k -> render(album, size));
+        delays.schedule(() -> respond(ex, 200, jpeg, "image/jpeg", null), delayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Two colour blocks derived from the album id, so palette extraction has something to find. */
+    private static byte[] render(String album, int size) {
+        int h = album.hashCode();
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(new Color(h & 0xFFFFFF));
+        g.fillRect(0, 0, size, size);
+        g.setColor(new Color(~h >>> 8 & 0xFFFFFF));
+        g.fillRect(size / 3, size / 3, size / 3, size / 3);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(img, "jpg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /* ── plumbing ─────────────────────────────────────────────────── */
+    private long delayMs() {
+        return config.latencyMs + (config.jitterMs > 0 ? ThreadLocalRandom.current().nextLong(config.jitterMs + 1) : 0);
+    }
+
+    private void respondLater(HttpExchange ex, int code, String json, String etag) {
+        byte[] body = json == null ? new byte[0] : json.getBytes(StandardCharsets.UTF_8);
+        delays.schedule(() -> respond(ex, code, body, "application/json; charset=utf-8", etag),
+                delayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void respond(HttpExchange ex, int code, byte[] body, String type, String etag) {
+        try (ex) {
+            if (etag != null) ex.getResponseHeaders().set("ETag", etag);
+            if (body.length == 0) {
+                ex.sendResponseHeaders(code, -1);
+                return;
+            }
+            ex.getResponseHeaders().set("Content-Type", type);
+            ex.sendResponseHeaders(code, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        } catch (IOException ignored) {
+            // client gave up (cancelled or timed out) — nothing to do
+        }
+    }
+
+    private static void drain(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static String error(int status, String message) {
+        return "{\"error\":{\"status\":" + status + ",\"message\":\"" + message + "\"}}";
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> q = new TreeMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            q.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                  URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return q;
+    }
+
+    private static int intParam(Map<String, String> q, String name, int fallback) {
+        try {
+            return Integer.parseInt(q.get(name));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private void count(String endpoint) { requests.computeIfAbsent(endpoint, k -> new LongAdder()).increment(); }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    /** Requests received per "METHOD /path", sorted. */
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> out = new TreeMap<>();
+        requests.forEach((k, v) -> out.put(k, v.sum()));
+        return out;
+    }
+
+    public long injected401() { return injected401.sum(); }
+    public long injected429() { return injected429.sum(); }
+    public long injected5xx() { return injected5xx.sum(); }
+    /** Requests that arrived with a token the server had already rotated away. */
+    public long rejected401() { return rejected401.sum(); }
+}
@@ -0,0 +1,289 @@
+package com.example.spotifycontrols.loadtest;
+
+import com.example.spotifycontrols.command.CommandQueue;
+import com.example.spotifycontrols.metrics.LatencyHistogram;
+import com.example.spotifycontrols.metrics.MetricsRegistry;
+import com.example.spotifycontrols.spotify.HttpTransport;
+import com.example.spotifycontrols.spotify.RequestScheduler;
+import com.example.spotifycontrols.spotify.RequestScheduler.Priority;
+import com.example.spotifycontrols.spotify.SpotifyAPI;
+import com.example.spotifycontrols.spotify.SpotifyAuth;
+import com.example.spotifycontrols.spotify.TokenRefresher;
+import com.example.spotifycontrols.spotify.TokenStorage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Headless load and latency run of the mod's network stack — scheduler,
+ * token refresh, cache, single-flight reads, command queue and HTTP
+ * transport — against a {@link FakeSpotifyServer}.  No game is started.
+ *
+ * <pre>
+ *   ./gradlew loadTest -Pargs="seconds=20 latencyMs=80 p429=0.01"
+ * </pre>
+ *
+ * Phases run one after another, each for {@code seconds}:
+ * <ul>
+ *   <li>{@code poll}   — {@code pollers} loops reading {@code /me/player} every {@code pollIntervalMs}</li>
+ *   <li>{@code search} — {@code searchers} loops of tab-completion searches</li>
+ *   <li>{@code storm}  — commands submitted to a {@link CommandQueue} at {@code stormRate} / s</li>
+ *   <li>{@code mixed}  — all three at once</li>
+ * </ul>
+ * Each phase reports throughput, caller-side p50 / p90 / p99 / max, errors
+ * and the peak thread count; the run ends with the per-endpoint histograms
+ * and a metrics dump under {@code config/spotifycontrols/} in the working
+ * directory (the token file is written there too).
+ *
+ * The client-side rate limiter is opened wide by default so the run
+ * measures the pipeline, not the bucket; {@code limiter=default} restores
+ * the mod's real 8-token, 2 / s bucket.  Any {@link FakeSpotifyServer.Config}
+ * field is accepted as an argument as well.
+ */
+public final class LoadHarness {
+
+    private static final String[] WORDS = {"track", "artist", "album", "love", "night", "blue", "home", "fire", "a", "the"};
+
+    /* ── options ──────────────────────────────────────────────────── */
+    private String phases         = "poll,search,storm,mixed";
+    private long   seconds        = 10;
+    private int    pollers        = 4;
+    private long   pollIntervalMs = 100;
+    private int    searchers      = 2;
+    private long   searchPauseMs  = 50;
+    private int    stormRate      = 50;
+    private int    httpThreads    = HttpTransport.DEFAULT_THREADS;
+    private String limiter        = "off";
+
+    private final FakeSpotifyServer.Config server = new FakeSpotifyServer.Config();
+
+    /* ── run state ────────────────────────────────────────────────── */
+    private final MetricsRegistry          metrics = new MetricsRegistry();
+    private final ThreadMXBean             threads = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService driver  = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "LoadHarness-Driver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SpotifyAPI   api;
+    private CommandQueue queue;
+    private volatile long phaseEndsAt;
+
+    public static void main(String[] args) throws Exception {
+        LoadHarness h = new LoadHarness();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !h.set(arg.substring(0, eq), arg.substring(eq + 1)))
+                throw new IllegalArgumentException("Unknown argument: " + arg + " (expected key=value)");
+        }
+        h.run();
+    }
+
+    private boolean set(String key, String value) {
+        switch (key) {
+            case "phases"         -> phases         = value;
+            case "seconds"        -> seconds        = Long.parseLong(value);
+            case "pollers"        -> pollers        = Integer.parseInt(value);
+            case "pollIntervalMs" -> pollIntervalMs = Long.parseLong(value);
+            case "searchers"      -> searchers      = Integer.parseInt(value);
+            case "searchPauseMs"  -> searchPauseMs  = Long.parseLong(value);
+            case "stormRate"      -> stormRate      = Integer.parseInt(value);
+            case "httpThreads"    -> httpThreads    = Integer.parseInt(value);
+            case "limiter"        -> limiter        = value;
+            default               -> { return server.set(key, value); }
+        }
+        return true;
+    }
+
+    /* ── run ──────────────────────────────────────────────────────── */
+    private void run() throws Exception {
+        int baseline = threads.getThreadCount();
+        try (FakeSpotifyServer fake = new FakeSpotifyServer(server)) {
+            TokenStorage storage = new TokenStorage();
+            storage.saveTokenResponse(fake.initialTokenResponse());
+
+            HttpTransport    http      = new HttpTransport(HttpTransport.DEFAULT_CONNECT_TIMEOUT,
+                                                           HttpTransport.DEFAULT_REQUEST_TIMEOUT, httpThreads);
+            RequestScheduler scheduler = "default".equals(limiter)
+                    ? new RequestScheduler()
+                    : new RequestScheduler(1_000_000, 1_000_000);
+            TokenRefresher   refresher = new TokenRefresher(storage, new SpotifyAuth(storage, http, fake.tokenUrl()));
+            api   = new SpotifyAPI(fake.baseUrl(), refresher, http, scheduler, metrics);
+            queue = new CommandQueue();
+            refresher.start();
+
+            System.out.println("server  " + fake.baseUrl() + "  " + server);
+            System.out.printf(Locale.ROOT, "client  limiter=%s httpThreads=%d  threads before start: %d%n%n",
+                    limiter, httpThreads, baseline);
+
+            for (String phase : phases.split(",")) {
+                switch (phase.trim()) {
+                    case "poll"   -> phase("poll",   true,  false, false);
+                    case "search" -> phase("search", false, true,  false);
+                    case "storm"  -> phase("storm",  false, false, true);
+                    case "mixed"  -> phase("mixed",  true,  true,  true);
+                    default       -> throw new IllegalArgumentException("Unknown phase: " + phase);
+                }
+            }
+
+            System.out.println("\nper endpoint (client side, includes refresh / backoff retries):");
+            metrics.summary().forEach(line -> System.out.println("  " + line));
+
+            System.out.println("\nserver:");
+            fake.requestCounts().forEach((k, v) -> System.out.printf(Locale.ROOT, "  %-36s %8d%n", k, v));
+            System.out.printf(Locale.ROOT, "  injected 401=%d 429=%d 5xx=%d, stale-token 401=%d%n",
+                    fake.injected401(), fake.injected429(), fake.injected5xx(), fake.rejected401());
+            System.out.printf(Locale.ROOT, "client:%n  reads sent=%d joined=%d  cache hit ratio=%.2f"
+                            + "  limiter granted=%d shed=%d throttled=%dms  token refreshes=%d (joined %d)"
+                            + " writes=%d (coalesced %d)  commands executed=%d coalesced=%d rejected=%d%n",
+                    api.readsSent(), api.readsJoined(), api.getResponseCache().hitRatio(),
+                    scheduler.granted(), scheduler.shed(), scheduler.throttledMillis(),
+                    refresher.refreshes(), refresher.joined(), storage.writes(), storage.coalescedSaves(),
+                    queue.executed(), queue.coalesced(), queue.rejected());
+
+            Path dump = metrics.dump();
+            System.out.println("\nmetrics written to " + dump.toAbsolutePath());
+
+            queue.shutdown();
+            refresher.shutdown();
+            scheduler.shutdown();
+            http.shutdown();
+            storage.shutdown();
+        } finally {
+            driver.shutdownNow();
+        }
+    }
+
+    /* ── phases ───────────────────────────────────────────────────── */
+    /** Caller-side results of one phase. */
+    private static final class Tally {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        final LongAdder ok = new LongAdder();
+
+        void done(long startedAt, Throwable ex) {
+            if (ex == null) {
+                latency.recordSince(startedAt);
+                ok.increment();
+            } else {
+                Throwable cause = SpotifyAPI.unwrap(ex);
+                errors.computeIfAbsent(cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    private void phase(String name, boolean poll, boolean search, boolean storm) throws InterruptedException {
+        Map<String, Tally> tallies = new TreeMap<>();
+        threads.resetPeakThreadCount();
+        phaseEndsAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long started = System.nanoTime();
+
+        if (poll) {
+            Tally t = new Tally();
+            tallies.put("poll", t);
+            for (int i = 0; i < pollers; i++)
+                loop(() -> api.getPlayerAsync(Priority.POLL), t, pollIntervalMs, i * pollIntervalMs / Math.max(1, pollers));
+        }
+        if (search) {
+            Tally t = new Tally();
+            tallies.put("search", t);
+            for (int i = 0; i < searchers; i++)
+                loop(() -> api.searchAsync(randomQuery(), 8, Priority.BACKGROUND), t, searchPauseMs, 0);
+        }
+        ScheduledFuture<?> commands = null;
+        if (storm) {
+            Tally t = new Tally();
+            tallies.put("command", t);
+            long periodNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, stormRate);
+            commands = driver.scheduleAtFixedRate(() -> submitCommand(t), 0, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long drainUntil = phaseEndsAt + TimeUnit.SECONDS.toNanos(CommandQueue.COMMAND_TIMEOUT_SECONDS);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        if (commands != null) commands.cancel(false);
+        while (queue.depth() > 0 && System.nanoTime() - drainUntil < 0) Thread.sleep(50);
+        Thread.sleep(server.latencyMs + server.jitterMs + 200);          // let the last calls land
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf(Locale.ROOT, "-- %s (%.1fs) --%n", name, elapsed);
+        for (Map.Entry<String, Tally> e : tallies.entrySet()) {
+            Tally t = e.getValue();
+            System.out.printf(Locale.ROOT, "  %-8s %7d ok %8.1f/s   p50 %7.1f  p90 %7.1f  p99 %7.1f  max %7.1f ms%s%n",
+                    e.getKey(), t.ok.sum(), t.ok.sum() / elapsed,
+                    t.latency.percentileMillis(0.50), t.latency.percentileMillis(0.90),
+                    t.latency.percentileMillis(0.99), t.latency.maxMillis(),
+                    t.errors.isEmpty() ? "" : "   errors " + errorSummary(t.errors));
+        }
+        System.out.printf(Locale.ROOT, "  threads  peak %d, live %d, mod-owned %d%n%n",
+                threads.getPeakThreadCount(), threads.getThreadCount(), MetricsRegistry.liveModThreads());
+    }
+
+    /** Runs {@code call} back to back, {@code pauseMs} apart, until the phase ends. */
+    private void loop(Supplier<CompletableFuture<?>> call, Tally tally, long pauseMs, long initialDelayMs) {
+        driver.schedule(() -> {
+            if (System.nanoTime() - phaseEndsAt >= 0) return;
+            long start = System.nanoTime();
+            call.get().whenComplete((r, ex) -> {
+                tally.done(start, ex);
+                loop(call, tally, pauseMs, pauseMs);
+            });
+        }, initialDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** One command through the queue, keyed and coalesced the way {@code SpotifyCommand} does it. */
+    private void submitCommand(Tally tally) {
+        long start = System.nanoTime();
+        int pick = ThreadLocalRandom.current().nextInt(10);
+        CommandQueue.Task task;
+        String key;
+        CommandQueue.Coalesce mode;
+        if (pick < 4) {
+            int pct = ThreadLocalRandom.current().nextInt(101);
+            key = "volume"; mode = CommandQueue.Coalesce.LATEST; task = times -> api.setVolumeAsync(pct);
+        } else if (pick < 7) {
+            key = "skip";   mode = CommandQueue.Coalesce.COUNT;  task = times -> repeat(times, api::skipAsync);
+        } else if (pick < 8) {
+            key = "prev";   mode = CommandQueue.Coalesce.COUNT;  task = times -> repeat(times, api::previousAsync);
+        } else if (pick < 9) {
+            key = "pause";  mode = CommandQueue.Coalesce.NONE;   task = times -> api.pauseAsync();
+        } else {
+            key = "play";   mode = CommandQueue.Coalesce.NONE;   task = times -> api.playAsync();
+        }
+        CommandQueue.Task timed = times -> task.run(times).whenComplete((r, ex) -> tally.done(start, ex));
+        if (!queue.submit(key, mode, timed, e -> {}))
+            tally.errors.computeIfAbsent("QueueFull", k -> new LongAdder()).increment();
+    }
+
+    private static CompletableFuture<?> repeat(int times, Supplier<CompletableFuture<Void>> step) {
+        CompletableFuture<?> f = step.get();
+        for (int i = 1; i < times; i++) f = f.thenCompose(v -> step.get());
+        return f;
+    }
+
+    private static String randomQuery() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return WORDS[r.nextInt(WORDS.length)] + " " + WORDS[r.nextInt(WORDS.length)];
+    }
+
+    private static String errorSummary(Map<String, LongAdder> errors) {
+        List<String> parts = new ArrayList<>();
+        new TreeMap<>(errors).forEach((k, v) -> parts.add(k + "=" + v.sum()));
+        return String.join(" ", parts);
+    }
+}
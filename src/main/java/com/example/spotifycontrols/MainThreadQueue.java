@@ -0,0 +1,163 @@
+package com.example.spotifycontrols;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands work from background threads to the client thread.
+ *
+ * Any thread may {@link #post}; only the client thread {@link #drain drains},
+ * once per tick, for at most a fixed time budget — whatever is left runs
+ * next tick, so a burst of results can never stall a frame.  The queue is
+ * a lock-free multi-producer / single-consumer linked list: a producer
+ * swaps itself in as the tail with one atomic exchange, the consumer walks
+ * from the head without any synchronisation of its own.
+ *
+ * Plain posts are bounded; once {@code capacity} tasks are waiting further
+ * ones are dropped and counted.  Posts of a {@link Kind} coalesce instead:
+ * each kind holds at most one queued task, and a newer post replaces the
+ * one still waiting — three quick skips show one toast, for the last
+ * track.  Since a kind never queues more than once it needs no bound.
+ *
+ * The budget can be set with {@code -Dspotifycontrols.mainThread.budgetMicros=1000}.
+ */
+public class MainThreadQueue implements Executor {
+
+    public static final int  DEFAULT_CAPACITY      = 256;
+    public static final long DEFAULT_BUDGET_MICROS = 1000;
+
+    /** A coalescing category: only the latest waiting task of a kind runs. */
+    public static final class Kind {
+        final String                    name;
+        final AtomicReference<Runnable> latest = new AtomicReference<>();
+
+        public Kind(String name) { this.name = name; }
+
+        @Override public String toString() { return name; }
+    }
+
+    private static final class Node {
+        Runnable    task;          // null for a kind's node — its task is read from the kind when run
+        final Kind  kind;
+        volatile Node next;
+
+        Node(Runnable task, Kind kind) {
+            this.task = task;
+            this.kind = kind;
+        }
+    }
+
+    private final int  capacity;
+    private final long budgetNanos;
+
+    private final AtomicReference<Node> tail;     // producers
+    private Node                        head;     // consumer only; always the last node taken (or the stub)
+    private final AtomicInteger         size = new AtomicInteger();
+
+    private final AtomicLong posted     = new AtomicLong();
+    private final AtomicLong executed   = new AtomicLong();
+    private final AtomicLong coalesced  = new AtomicLong();
+    private final AtomicLong dropped    = new AtomicLong();
+    private final AtomicLong failed     = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();   // drains that stopped with work left
+
+    /** Configured from {@code spotifycontrols.mainThread.budgetMicros}. */
+    public MainThreadQueue() {
+        this(DEFAULT_CAPACITY, TimeUnit.MICROSECONDS.toNanos(
+                Long.getLong("spotifycontrols.mainThread.budgetMicros", DEFAULT_BUDGET_MICROS)));
+    }
+
+    public MainThreadQueue(int capacity, long budgetNanos) {
+        this.capacity    = capacity;
+        this.budgetNanos = budgetNanos;
+        this.head        = new Node(null, null);
+        this.tail        = new AtomicReference<>(head);
+    }
+
+    /* ── producers (any thread) ───────────────────────────────────── */
+    /** Queues {@code task}; returns {@code false} if the queue was full and it was dropped. */
+    public boolean post(Runnable task) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        posted.incrementAndGet();
+        append(new Node(task, null));
+        return true;
+    }
+
+    /** Queues {@code task} as the latest of its kind, replacing one that has not run yet. */
+    public void post(Kind kind, Runnable task) {
+        posted.incrementAndGet();
+        if (kind.latest.getAndSet(task) != null) {
+            coalesced.incrementAndGet();          // the node already queued will run this one
+            return;
+        }
+        size.incrementAndGet();
+        append(new Node(null, kind));
+    }
+
+    /** {@link Executor} form of {@link #post(Runnable)}, for {@code *Async} future stages. */
+    @Override
+    public void execute(Runnable task) {
+        if (!post(task)) throw new RejectedExecutionException("Main-thread queue full");
+    }
+
+    private void append(Node n) {
+        Node prev = tail.getAndSet(n);
+        prev.next = n;                            // until this lands the consumer just sees a shorter queue
+    }
+
+    /* ── consumer (client thread) ─────────────────────────────────── */
+    /**
+     * Runs queued tasks until the queue is empty or the budget is spent.
+     * At least one task runs per call, so the queue always makes progress.
+     *
+     * @return the number of tasks run
+     */
+    public int drain() {
+        Node next = head.next;
+        if (next == null) return 0;
+
+        long start = System.nanoTime();
+        int  ran   = 0;
+        do {
+            head = next;
+            Runnable task = next.kind != null ? next.kind.latest.getAndSet(null) : next.task;
+            next.task = null;
+            size.decrementAndGet();
+            if (task != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    SpotifyControlsMod.LOGGER.error("[SpotifyControls] main-thread task failed", e);
+                }
+                executed.incrementAndGet();
+                ran++;
+            }
+            next = head.next;
+            if (next != null && System.nanoTime() - start >= budgetNanos) {
+                overBudget.incrementAndGet();
+                break;
+            }
+        } while (next != null);
+        return ran;
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public int  depth()      { return Math.max(0, size.get()); }
+    public long posted()     { return posted.get();     }
+    public long executed()   { return executed.get();   }
+    /** Posts that replaced a waiting task of the same kind. */
+    public long coalesced()  { return coalesced.get();  }
+    public long dropped()    { return dropped.get();    }
+    public long failed()     { return failed.get();     }
+    /** Drains that hit the time budget and left work for the next tick. */
+    public long overBudget() { return overBudget.get(); }
+}
@@ -1,27 +1,48 @@
 package com.example.spotifycontrols;
 
+import com.example.spotifycontrols.art.AlbumColourCache;
+import com.example.spotifycontrols.art.ImageIngest;
+import com.example.spotifycontrols.art.PaletteExtractor;
 import com.example.spotifycontrols.command.SpotifyCommand;
+import com.example.spotifycontrols.hud.AlbumArtHud;
+import com.example.spotifycontrols.hud.AlbumArtTextures;
+import com.example.spotifycontrols.hud.NowPlayingHud;
+import com.example.spotifycontrols.metrics.LatencyHistogram;
+import com.example.spotifycontrols.metrics.MetricsRegistry;
+import com.example.spotifycontrols.playback.PlaybackClock;
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import com.example.spotifycontrols.playback.PlaybackState;
+import com.example.spotifycontrols.playback.PollPolicy;
+import com.example.spotifycontrols.playback.SpotifyPoller;
+import com.example.spotifycontrols.playback.TrackPrefetcher;
+import com.example.spotifycontrols.playback.XpBarProgress;
+import com.example.spotifycontrols.spotify.HttpTransport;
+import com.example.spotifycontrols.spotify.RequestScheduler;
 import com.example.spotifycontrols.spotify.SpotifyAPI;
 import com.example.spotifycontrols.spotify.SpotifyAuth;
+import com.example.spotifycontrols.spotify.TokenRefresher;
 import com.example.spotifycontrols.spotify.TokenStorage;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.toast.SystemToast;
 import net.minecraft.text.Text;
+import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.InputStream;
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Environment(EnvType.CLIENT)
 public class SpotifyControlsMod implements ClientModInitializer {
@@ -29,54 +50,142 @@ public class SpotifyControlsMod implements ClientModInitializer {
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
     /* ── singletons ───────────────────────────────────────────────── */
-    private static SpotifyAPI    spotifyAPI;
-    private static TokenStorage  tokenStorage;
-    private static SpotifyAuth   spotifyAuth;
-
-    /* ── track-change detection ───────────────────────────────────── */
-    private static String  lastTrackName  = "";
-    private static int     tickCounter    = 0;
-    private static final int CHECK_INTERVAL = 60;   // 3 seconds @ 20 tps
-
-    /* ── XP-bar progress (singleplayer only) ─────────────────────── */
-    private static volatile float  currentProgress = -1f;   // -1 = not playing
-    private static float           savedXpProgress = 0f;
-    private static int             savedXpLevel    = 0;
-    private static boolean         xpSaved         = false;
-
-    /* ── album-art colour (hex or null → green) ──────────────────── */
-    private static volatile String albumColourHex = null;
-
-    /* ── toast scheduled from background thread ──────────────────── */
-    private static final AtomicReference<Runnable> pendingToast = new AtomicReference<>(null);
+    private static HttpTransport    http;
+    private static RequestScheduler scheduler;
+    private static SpotifyAPI       spotifyAPI;
+    private static TokenStorage     tokenStorage;
+    private static SpotifyAuth      spotifyAuth;
+    private static TokenRefresher   tokenRefresher;
+    private static SpotifyPoller    poller;
+    private static TrackPrefetcher  prefetcher;
+    private static AlbumArtTextures albumArt;
+    private static AlbumArtHud      albumArtHud;
+    private static NowPlayingHud    nowPlayingHud;
+    private static final MetricsRegistry metrics = new MetricsRegistry();
+
+    /* ── last poll, published whole (written by the poll chain only) ─ */
+    private static volatile PlaybackSnapshot snapshot = PlaybackSnapshot.NONE;
+
+    /* ── playback position, predicted locally between polls ──────── */
+    private static final PlaybackClock clock = new PlaybackClock();
+    private static final PlaybackState state = new PlaybackState();   // optimistic overlay
+    private static final long COMMAND_RESYNC_DELAY = TimeUnit.MILLISECONDS.toNanos(750);
+
+    /* ── when to poll, from playback and what the player is doing ─── */
+    private static final PollPolicy policy = new PollPolicy();
+    private static final long AFK_AFTER_NANOS =
+            TimeUnit.MINUTES.toNanos(Long.getLong("spotifycontrols.poll.afkMinutes", 5));
+    private static final InputWatch input = new InputWatch();
+
+    /* ── XP-bar progress (singleplayer only, client thread only) ──── */
+    private static final XpBarProgress xpBar     = new XpBarProgress();
+    private static final PlayerXpBar   playerBar = new PlayerXpBar();
+
+    /* ── album-art colour ────────────────────────────────────────── */
+    private static final AlbumColourCache colourCache = new AlbumColourCache();
+    private static final PaletteExtractor palettes    = new PaletteExtractor();
+    private static final ImageIngest      ingest      = new ImageIngest();     // byte cap + subsampled decode
+    private static final LatencyHistogram colourTime  = metrics.histogram("art.extract");
+
+    /* ── results handed from background threads to the client thread ─ */
+    private static final MainThreadQueue      mainThread = new MainThreadQueue();
+    private static final MainThreadQueue.Kind TOAST      = new MainThreadQueue.Kind("toast");
 
     /* ════════════════════════════════════════════════════════════════ */
     @Override
     public void onInitializeClient() {
         LOGGER.info("[SpotifyControls] Initialising (client-side mod)");
 
-        tokenStorage = new TokenStorage();
-        spotifyAuth  = new SpotifyAuth(tokenStorage);
-        spotifyAPI   = new SpotifyAPI(tokenStorage);
+        http           = new HttpTransport();
+        scheduler      = new RequestScheduler();        // rate-limit budget shared by all API calls
+        tokenStorage   = new TokenStorage();
+        spotifyAuth    = new SpotifyAuth(tokenStorage, http);
+        tokenRefresher = new TokenRefresher(tokenStorage, spotifyAuth);
+        spotifyAPI     = new SpotifyAPI(tokenRefresher, http, scheduler, metrics);
+        poller         = new SpotifyPoller(SpotifyControlsMod::pollCurrentTrack);
+        prefetcher     = new TrackPrefetcher(spotifyAPI, SpotifyControlsMod::loadArt);
+        albumArt       = new AlbumArtTextures(SpotifyControlsMod::downloadArt, ingest, metrics.histogram("art.decode"));
+        albumArtHud    = new AlbumArtHud(albumArt, () -> nowPlayingHud.isEnabled());   // cover moves into the panel
+        nowPlayingHud  = new NowPlayingHud(albumArtHud);
+        registerGauges();
+        tokenStorage.warmUpAsync();                     // disk reads stay off the main thread
+        colourCache.warmUpAsync();
+        tokenRefresher.start();                         // renews before expiry
 
         // client commands — works in BOTH singleplayer & multiplayer
         SpotifyCommand.register();
 
         ClientTickEvents.END_CLIENT_TICK.register(this::onClientTick);
+        HudRenderCallback.EVENT.register(albumArtHud);
+        HudRenderCallback.EVENT.register(nowPlayingHud);   // title/artist/progress, singleplayer and servers
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            poller.shutdown();
+            prefetcher.shutdown();
+            albumArt.shutdown(client);                  // frees the cover textures
+            SpotifyCommand.getQueue().shutdown();
+            SpotifyCommand.getSuggestions().shutdown();
+            tokenRefresher.shutdown();
+            scheduler.shutdown();
+            http.shutdown();
+            tokenStorage.shutdown();                    // flushes a pending token write
+            colourCache.shutdown();                     // and unsaved album colours
+        });
         LOGGER.info("[SpotifyControls] Ready");
     }
 
+    private static void registerGauges() {
+        metrics.gauge("poll.completed",        poller::completedPolls);
+        metrics.gauge("poll.skipped",          poller::skippedPolls);
+        metrics.gauge("poll.intervalMs",       policy::intervalMillis);
+        metrics.gauge("poll.suspendedTicks",   policy::suspendedTicks);
+        metrics.info ("poll",                  policy::describe);
+        metrics.gauge("cache.hitRatio",        () -> spotifyAPI.getResponseCache().hitRatio());
+        metrics.gauge("cache.bytesSaved",      () -> spotifyAPI.getResponseCache().bytesSaved());
+        metrics.gauge("reads.joined",          spotifyAPI::readsJoined);
+        metrics.gauge("prefetch.hits",         prefetcher::hits);
+        metrics.gauge("prefetch.misses",       prefetcher::misses);
+        metrics.gauge("prefetch.stagedBytes",  prefetcher::stagedBytes);
+        metrics.gauge("hud.textures",          albumArt::residentCount);
+        metrics.gauge("hud.uploads",           albumArt::uploaded);
+        metrics.gauge("hud.evictions",         albumArt::evictions);
+        metrics.gauge("hud.layouts",           nowPlayingHud::layouts);
+        metrics.gauge("ingest.rejected",       ingest::rejected);
+        metrics.gauge("ingest.subsampled",     ingest::subsampled);
+        metrics.gauge("ingest.peakBytes",      ingest::peakDecodeBytes);
+        metrics.gauge("colourCache.hits",      colourCache::hits);
+        metrics.gauge("colourCache.misses",    colourCache::misses);
+        metrics.gauge("colourCache.evictions", colourCache::evictions);
+        metrics.gauge("limiter.queued",        () -> scheduler.queueDepth());
+        metrics.gauge("limiter.throttledMs",   scheduler::throttledMillis);
+        metrics.gauge("limiter.shed",          scheduler::shed);
+        metrics.gauge("http.connectionReuse",  http::connectionReuse);
+        metrics.gauge("tokens.refreshes",      tokenRefresher::refreshes);
+        metrics.gauge("tokens.writes",         tokenStorage::writes);
+        metrics.gauge("tokens.coalescedSaves", tokenStorage::coalescedSaves);
+        metrics.gauge("tokens.failedWrites",   tokenStorage::failedWrites);
+        metrics.gauge("commands.coalesced",    () -> SpotifyCommand.getQueue().coalesced());
+        metrics.gauge("commands.timedOut",     () -> SpotifyCommand.getQueue().timedOut());
+        metrics.gauge("mainThread.depth",      mainThread::depth);
+        metrics.gauge("mainThread.coalesced",  mainThread::coalesced);
+        metrics.gauge("mainThread.dropped",    mainThread::dropped);
+        metrics.gauge("mainThread.overBudget", mainThread::overBudget);
+    }
+
     /* ── tick ─────────────────────────────────────────────────────── */
     private void onClientTick(MinecraftClient client) {
-        // flush any toast that a background thread prepared
-        Runnable t = pendingToast.getAndSet(null);
-        if (t != null) t.run();
-
-        // periodic Spotify poll
-        tickCounter++;
-        if (tickCounter >= CHECK_INTERVAL) {
-            tickCounter = 0;
-            if (tokenStorage.hasToken()) pollCurrentTrack(client);
+        // run what background threads handed over (toasts, chat replies), within the tick budget
+        mainThread.drain();
+
+        // re-sync with Spotify only when the poll policy says it's needed
+        long now = System.nanoTime();
+        if (tokenStorage.hasToken()) {                  // false until the token file has been read
+            PollPolicy.Presence presence = presence(client, now);
+            if (policy.isPollDue(now, presence))
+                poller.requestPoll();                    // skipped if one is in flight
+
+            // near the end of the track, get the next one ready
+            if (presence == PollPolicy.Presence.ACTIVE || presence == PollPolicy.Presence.BACKGROUND)
+                prefetcher.maybePrefetch(now, clock.trackEndNanos(), snapshot.trackKey());
         }
 
         // keep the XP bar faked every tick (singleplayer only)
@@ -84,35 +193,74 @@ public class SpotifyControlsMod implements ClientModInitializer {
     }
 
     /* ── poll ─────────────────────────────────────────────────────── */
-    private void pollCurrentTrack(MinecraftClient client) {
-        new Thread(() -> {
-            try {
-                SpotifyAPI.TrackData data = spotifyAPI.getCurrentTrackData();
-
-                if (data == null) {
-                    currentProgress = -1f;
-                    albumColourHex  = null;
-                    return;
-                }
-
-                currentProgress = data.progressRatio;
-
-                if (!data.displayName.equals(lastTrackName)) {
-                    lastTrackName = data.displayName;
-
-                    // extract dominant colour from album art
-                    albumColourHex = (data.albumImageUrl != null && !data.albumImageUrl.isEmpty())
-                            ? extractDominantColour(data.albumImageUrl)
-                            : null;
-
-                    // schedule the toast on the main thread
-                    String name = data.displayName;
-                    pendingToast.set(() -> showToast(client, name));
-                }
-            } catch (Exception e) {
-                LOGGER.error("[SpotifyControls] poll error: " + e.getMessage());
-            }
-        }).start();
+    /**
+     * One poll of {@code GET /me/player}, as a future chain on the HTTP
+     * worker pool.  The {@link SpotifyPoller} never starts a poll before
+     * the previous one's future has completed, so this chain is the only
+     * writer of {@link #snapshot}.
+     */
+    private static CompletableFuture<Void> pollCurrentTrack() {
+        policy.onPollStarted(System.nanoTime());
+        return spotifyAPI.getPlayerAsync(RequestScheduler.Priority.POLL)
+                .thenCompose(SpotifyControlsMod::applySnapshot)
+                .exceptionally(e -> {
+                    Throwable cause = SpotifyAPI.unwrap(e);
+                    if (cause instanceof CancellationException) return null;   // shutting down
+                    boolean shed = cause instanceof RequestScheduler.RateLimitedException;
+                    policy.onFailed(System.nanoTime(), shed);                  // backs off exponentially
+                    if (!shed) LOGGER.error("[SpotifyControls] poll error: " + cause.getMessage());
+                    return null;
+                });
+    }
+
+    private static CompletableFuture<Void> applySnapshot(PlaybackSnapshot next) {
+        Integer volume = next.volumePercent >= 0 ? next.volumePercent : null;
+        String  repeat = next == PlaybackSnapshot.NONE ? null : next.repeat;
+
+        if (!next.hasTrack()) {
+            // NONE (204, no active device) carries no sample time of its own
+            long sampledAt = next == PlaybackSnapshot.NONE ? System.nanoTime() : next.sampledAtNanos;
+            state.reconcile(null, false, volume, repeat, sampledAt);
+            clock.clear();
+            policy.onIdle(System.nanoTime());
+            snapshot = next;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        state.reconcile(next.trackKey(), next.playing, volume, repeat, next.sampledAtNanos);
+        if (state.isTrackChangePending()) {
+            // sample predates a skip that Spotify hasn't applied yet — keep the optimistic view
+            policy.requestResync(System.nanoTime(), COMMAND_RESYNC_DELAY);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        clock.sync(next.trackKey(), next.progressMs, next.durationMs,
+                   state.playing(), next.sampledAtNanos);
+        policy.onSample(clock, next.sampledAtNanos);
+
+        PlaybackSnapshot prev = snapshot;
+        if (next.trackKey().equals(prev.trackKey())) {
+            snapshot = next.withAlbumColour(prev.albumColourHex);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // new track: prefetched near the end of the last one, or publish once its colour is known
+        TrackPrefetcher.Staged ready = prefetcher.take(next.trackKey());
+        if (ready != null && (ready.albumColourHex != null || next.albumImageUrl == null)) {
+            publishNewTrack(next, ready.albumColourHex, ready.albumImage);
+            return CompletableFuture.completedFuture(null);
+        }
+        return albumColour(next).thenAccept(hex -> publishNewTrack(next, hex, null));
+    }
+
+    /** Track and colour go out together, so they never disagree. */
+    private static void publishNewTrack(PlaybackSnapshot next, String hex, byte[] cover) {
+        snapshot = next.withAlbumColour(hex);
+        albumArtHud.request(next, cover);                // no-op unless the cover HUD is on
+
+        // toast on the main thread; a newer track before the next tick replaces it
+        String name = next.displayName();
+        mainThread.post(TOAST, () -> showToast(MinecraftClient.getInstance(), name));
     }
 
     /* ── SystemToast ──────────────────────────────────────────────── */
@@ -131,16 +279,50 @@ public class SpotifyControlsMod implements ClientModInitializer {
                 Text.literal(trackDisplayName));
     }
 
+    /* ── presence ─────────────────────────────────────────────────── */
+    /**
+     * What the player is doing, for {@link PollPolicy}: minimized, AFK
+     * (no look, movement or screen change for {@code afkMinutes}), in the
+     * background (unfocused, game menu or title screen), or active.
+     */
+    private static PollPolicy.Presence presence(MinecraftClient client, long now) {
+        if (GLFW.glfwGetWindowAttrib(client.getWindow().getHandle(), GLFW.GLFW_ICONIFIED) != 0)
+            return PollPolicy.Presence.MINIMIZED;
+        if (input.changed(client)) input.lastNanos = now;
+        else if (now - input.lastNanos > AFK_AFTER_NANOS) return PollPolicy.Presence.AFK;
+        if (!client.isWindowFocused() || client.world == null || client.isPaused())
+            return PollPolicy.Presence.BACKGROUND;
+        return PollPolicy.Presence.ACTIVE;
+    }
+
+    /** Last seen look direction, position and screen; client thread only. */
+    private static final class InputWatch {
+        long   lastNanos = System.nanoTime();
+        float  yaw, pitch;
+        double x, z;
+        Screen screen;
+
+        boolean changed(MinecraftClient client) {
+            boolean changed = client.currentScreen != screen;
+            screen = client.currentScreen;
+            ClientPlayerEntity p = client.player;
+            if (p != null) {
+                changed |= p.getYaw() != yaw || p.getPitch() != pitch || p.getX() != x || p.getZ() != z;
+                yaw = p.getYaw(); pitch = p.getPitch(); x = p.getX(); z = p.getZ();
+            }
+            return changed;
+        }
+    }
+
     /* ── XP bar (singleplayer only) ───────────────────────────────── */
     /**
      * In singleplayer (integrated server present) we overwrite the
-     * client-local XP fields every tick to show song progress.
+     * client-local XP fields every tick to show song progress.  The
+     * progress comes from {@link PlaybackClock}, so it moves smoothly
+     * between polls; the save / restore logic is {@link XpBarProgress}.
      *
-     * experienceProgress and experienceLevel are PUBLIC FIELDS on
-     * PlayerEntity — there are no setter methods in 1.21.  We assign
-     * them directly.
-     *
-     * In multiplayer we skip entirely so real XP is never touched.
+     * In multiplayer we skip entirely so real XP is never touched; there
+     * the {@link NowPlayingHud} overlay is the progress display.
      */
     private void updateXpBar(MinecraftClient client) {
         if (client.player == null) return;
@@ -148,96 +330,172 @@ public class SpotifyControlsMod implements ClientModInitializer {
         // singleplayer = integrated server is non-null
         if (client.getServer() == null) return;   // multiplayer → do nothing
 
-        if (currentProgress < 0f) {
-            restoreXp(client);
-            return;
-        }
+        playerBar.player = client.player;
+        xpBar.update(playerBar, clock.progressRatio(System.nanoTime()));
+    }
 
-        // save the real values once, before we start overwriting
-        if (!xpSaved) {
-            savedXpProgress = client.player.experienceProgress;   // float field
-            savedXpLevel    = client.player.experienceLevel;      // int  field
-            xpSaved         = true;
+    /**
+     * experienceProgress and experienceLevel are PUBLIC FIELDS on
+     * PlayerEntity — there are no setter methods in 1.21.  We assign
+     * them directly.  One reusable instance; client thread only.
+     */
+    private static final class PlayerXpBar implements XpBarProgress.Bar {
+        ClientPlayerEntity player;
+
+        @Override public float progress() { return player.experienceProgress; }
+        @Override public int   level()    { return player.experienceLevel;    }
+
+        @Override public void set(float progress, int level) {
+            player.experienceProgress = progress;
+            player.experienceLevel    = level;
         }
+    }
 
-        // overwrite with song progress (0.0 – 1.0)
-        client.player.experienceProgress = currentProgress;
-        client.player.experienceLevel    = 0;   // hide the level number
+    /* ── album-art colour extraction ──────────────────────────────── */
+    /**
+     * "#RRGGBB" for the track's album, or null (caller falls back to green).
+     * Albums seen before — even in an earlier session — come from
+     * {@link AlbumColourCache} without touching the network.
+     */
+    private static CompletableFuture<String> albumColour(PlaybackSnapshot data) {
+        if (data.albumImageUrl == null || data.albumImageUrl.isEmpty())
+            return CompletableFuture.completedFuture(null);
+        String key = data.albumId != null ? data.albumId : data.albumImageUrl;
+
+        Integer cached = colourCache.get(key);
+        if (cached != null) return CompletableFuture.completedFuture(String.format("#%06X", cached));
+
+        return extractDominantColour(data.albumImageUrl).thenApply(rgb -> {
+            if (rgb < 0) return null;
+            colourCache.put(key, rgb);
+            return String.format("#%06X", rgb);
+        });
     }
 
-    /** Restore real XP when music stops / pauses. */
-    private void restoreXp(MinecraftClient client) {
-        if (!xpSaved || client.player == null) return;
-        client.player.experienceProgress = savedXpProgress;
-        client.player.experienceLevel    = savedXpLevel;
-        xpSaved = false;
+    /**
+     * Downloads the album thumbnail and completes with the accent colour of
+     * its {@link PaletteExtractor palette} as 0xRRGGBB, or -1 on any failure.
+     */
+    private static CompletableFuture<Integer> extractDominantColour(String imageUrl) {
+        return downloadArt(imageUrl)
+                .thenApply(bytes -> bytes == null ? -1 : accentOf(bytes))
+                .exceptionally(e -> {
+                    LOGGER.warn("[SpotifyControls] album-art fetch: " + SpotifyAPI.unwrap(e).getMessage());
+                    return -1;
+                });
     }
 
-    /* ── album-art colour extraction ──────────────────────────────── */
     /**
-     * Downloads the album thumbnail, samples a 16×16 grid, and returns
-     * the most-saturated pixel as "#RRGGBB".  Returns null on any failure
-     * (caller falls back to green).
+     * {@link TrackPrefetcher.ArtLoader}: the colour of an upcoming track's
+     * album — from the cache if the album is known, else analysed now and
+     * cached, so the change itself costs nothing.  The thumbnail is only
+     * downloaded on a cache miss or when the album-art HUD will show it.
      */
-    private static String extractDominantColour(String imageUrl) {
-        try {
-            HttpClient http = HttpClient.newHttpClient();
-            HttpRequest req  = HttpRequest.newBuilder(URI.create(imageUrl)).GET().build();
-            HttpResponse<InputStream> resp =
-                    http.send(req, HttpResponse.BodyHandlers.ofInputStream());
-            if (resp.statusCode() != 200) return null;
-
-            BufferedImage img = ImageIO.read(resp.body());
-            if (img == null) return null;
-
-            int w = img.getWidth(), h = img.getHeight();
-            int step = Math.max(1, Math.min(w, h) / 16);
-
-            float bestSat = -1f;
-            int   bestRgb  = 0x1DB954;          // Spotify green fallback
-
-            for (int y = 0; y < h; y += step) {
-                for (int x = 0; x < w; x += step) {
-                    int rgb = img.getRGB(x, y);
-                    int r = (rgb >> 16) & 0xFF,
-                        g = (rgb >>  8) & 0xFF,
-                        b =  rgb        & 0xFF;
-
-                    float brightness = (r + g + b) / 765f;
-                    if (brightness < 0.08f || brightness > 0.92f) continue;
-
-                    float sat = hslSaturation(r, g, b);
-                    if (sat > bestSat) {
-                        bestSat = sat;
-                        bestRgb = (r << 16) | (g << 8) | b;
+    private static CompletableFuture<TrackPrefetcher.Art> loadArt(String albumKey, String imageUrl) {
+        Integer cached = colourCache.get(albumKey);
+        TrackPrefetcher.Art colourOnly = cached != null
+                ? new TrackPrefetcher.Art(String.format("#%06X", cached), null)
+                : TrackPrefetcher.Art.NONE;
+        if (cached != null && !albumArtHud.isEnabled()) return CompletableFuture.completedFuture(colourOnly);
+
+        return downloadArt(imageUrl)
+                .thenApply(bytes -> {
+                    if (bytes == null) return colourOnly;
+                    if (albumArtHud.isEnabled()) albumArt.request(albumKey, imageUrl, bytes);   // upload before the change
+                    Integer rgb = cached;
+                    if (rgb == null) {
+                        int accent = accentOf(bytes);
+                        if (accent >= 0) {
+                            colourCache.put(albumKey, accent);
+                            rgb = accent;
+                        }
                     }
-                }
-            }
-            return String.format("#%06X", bestRgb);
+                    return new TrackPrefetcher.Art(rgb != null ? String.format("#%06X", rgb) : null, bytes);
+                })
+                .exceptionally(e -> {
+                    LOGGER.warn("[SpotifyControls] album-art prefetch: " + SpotifyAPI.unwrap(e).getMessage());
+                    return colourOnly;
+                });
+    }
 
-        } catch (Exception e) {
-            LOGGER.warn("[SpotifyControls] album-art fetch: " + e.getMessage());
-            return null;
-        }
+    /** The encoded thumbnail, or null on a non-200 answer; fails if it is over the ingest byte cap. */
+    private static CompletableFuture<byte[]> downloadArt(String imageUrl) {
+        return scheduler.acquire(RequestScheduler.Priority.BACKGROUND)         // shed first when limited
+                .thenCompose(v -> http.sendAsync(http.newRequest(URI.create(imageUrl)).GET().build(),
+                                                 ingest.bodyHandler()))
+                .thenApply(resp -> resp.statusCode() == 200 ? resp.body() : null);
     }
 
-    /** HSL saturation 0–1 from RGB 0–255. */
-    private static float hslSaturation(int r, int g, int b) {
-        float rf = r / 255f, gf = g / 255f, bf = b / 255f;
-        float max = Math.max(rf, Math.max(gf, bf));
-        float min = Math.min(rf, Math.min(gf, bf));
-        if (max == min) return 0f;
-        float l = (max + min) / 2f;
-        float d = max - min;
-        return d / (l > 0.5f ? 2f - max - min : max + min);
+    /** Palette accent of an encoded image as 0xRRGGBB, or -1 if it can't be decoded. */
+    private static int accentOf(byte[] encoded) {
+        long start = System.nanoTime();
+        try {
+            // subsampled to what the palette samples anyway — cheap enough for the HTTP worker
+            return palettes.extract(ingest.decode(encoded, ImageIngest.TARGET_SIZE)).accent();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            colourTime.recordSince(start);
+        }
     }
 
     /* ── public accessors ─────────────────────────────────────────── */
-    public static String        getAlbumColourHex()  { return albumColourHex;  }
-    public static SpotifyAPI    getSpotifyAPI()      { return spotifyAPI;      }
-    public static TokenStorage  getTokenStorage()    { return tokenStorage;    }
-    public static SpotifyAuth   getSpotifyAuth()     { return spotifyAuth;     }
-
+    public static PlaybackSnapshot getSnapshot()          { return snapshot;        }
+    public static String           getAlbumColourHex()    { return snapshot.albumColourHex; }
+    public static HttpTransport    getHttpTransport()     { return http;            }
+    public static RequestScheduler getRequestScheduler()  { return scheduler;       }
+    public static SpotifyAPI       getSpotifyAPI()        { return spotifyAPI;      }
+    public static TokenStorage     getTokenStorage()      { return tokenStorage;    }
+    public static SpotifyAuth      getSpotifyAuth()       { return spotifyAuth;     }
+    public static TokenRefresher   getTokenRefresher()    { return tokenRefresher;  }
+    public static SpotifyPoller    getPoller()            { return poller;          }
+    public static TrackPrefetcher  getPrefetcher()        { return prefetcher;      }
+    public static AlbumArtHud      getAlbumArtHud()       { return albumArtHud;     }
+    public static NowPlayingHud    getNowPlayingHud()     { return nowPlayingHud;   }
+    public static PlaybackClock    getPlaybackClock()     { return clock;           }
+    public static PollPolicy       getPollPolicy()        { return policy;          }
+    public static PlaybackState    getPlaybackState()     { return state;           }
+    public static AlbumColourCache getColourCache()       { return colourCache;     }
+    public static MetricsRegistry  getMetrics()           { return metrics;         }
+    public static MainThreadQueue  getMainThread()        { return mainThread;      }
+
+    /* ── optimistic updates, applied the moment a command is issued ─ */
     /** Called by SpotifyCommand.pause so the XP bar restores immediately. */
-    public static void notifyPaused() { currentProgress = -1f; }
+    public static PlaybackState.Pending notifyPaused() {
+        clock.pause(System.nanoTime());
+        return state.expectPlaying(false);
+    }
+
+    public static PlaybackState.Pending notifyResumed() {
+        clock.resume(System.nanoTime());
+        return state.expectPlaying(true);
+    }
+
+    /** Skip or search-and-play: the next poll must show a different track, and the bar restarts. */
+    public static PlaybackState.Pending notifyTrackChanging() {
+        return state.expectTrackChange().and(state.expectPlaying(true)).and(restartOnAck());
+    }
+
+    /** Previous may restart the same track, so only the position is predicted. */
+    public static PlaybackState.Pending notifyRestarted() { return restartOnAck(); }
+
+    /**
+     * Restarts the bar once Spotify has taken the command.  Until then the
+     * clock is untouched, so a command that is dropped or fails leaves
+     * nothing to roll back.
+     */
+    private static PlaybackState.Pending restartOnAck() {
+        return new PlaybackState.Pending() {
+            @Override public void ack()    { clock.restart(System.nanoTime()); }
+            @Override public void cancel() {}
+        };
+    }
+
+    public static PlaybackState.Pending notifyVolume(int pct)     { return state.expectVolume(pct);  }
+    public static PlaybackState.Pending notifyRepeat(String mode) { return state.expectRepeat(mode); }
+
+    /** Called after any playback command so the new state is read back soon. */
+    public static void notifyCommandSent() {
+        policy.requestResync(System.nanoTime(), COMMAND_RESYNC_DELAY);
+    }
 }
@@ -0,0 +1,213 @@
+package com.example.spotifycontrols.art;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the dominant colour of every album we have already analysed,
+ * so a track we have seen before costs no download and no image decode.
+ *
+ * Keys are Spotify album ids (or the image URL when there is no id).  The
+ * in-memory map is a bounded LRU; it is persisted to a small binary file
+ * under {@code config/spotifycontrols/} so hits survive a restart.
+ *
+ * All file I/O runs on one writer thread: the warm-up read, and saves,
+ * which {@link #put} schedules a couple of seconds out so a burst of new
+ * albums costs one write.  Callers never touch the disk.
+ *
+ * File format: {@code int magic, int count, count × (UTF key, int rgb)},
+ * least-recently-used first.
+ */
+public class AlbumColourCache {
+
+    public  static final int  DEFAULT_MAX_ENTRIES = 512;
+    private static final int  MAGIC = 0x53434331;            // "SCC1"
+    private static final Path DEFAULT_FILE = Path.of("config", "spotifycontrols", "colours.bin");
+    private static final long SAVE_DELAY_MS = 2_000;
+    private static final long MAX_RETRY_MS = 60_000;
+    private static final long FLUSH_TIMEOUT_MS = 2_000;
+
+    private final int  maxEntries;
+    private final Path file;
+
+    private final LinkedHashMap<String, Integer> lru;
+    private final AtomicLong hits      = new AtomicLong();
+    private final AtomicLong misses    = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean            saveScheduled = new AtomicBoolean();
+    private long                           retryDelayMs  = SAVE_DELAY_MS;     // writer thread only
+
+    private volatile boolean                 dirty;
+    private volatile CompletableFuture<Void> loaded = CompletableFuture.completedFuture(null);
+
+    public AlbumColourCache() { this(DEFAULT_FILE, DEFAULT_MAX_ENTRIES); }
+
+    public AlbumColourCache(Path file, int maxEntries) {
+        this.file       = file;
+        this.maxEntries = maxEntries;
+        this.lru        = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                if (size() <= AlbumColourCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+        this.writer     = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SpotifyControls-ColourCache");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /* ── lookup ───────────────────────────────────────────────────── */
+    /** Returns the cached 0xRRGGBB colour, or {@code null} on a miss. */
+    public Integer get(String key) {
+        Integer rgb;
+        synchronized (lru) { rgb = lru.get(key); }
+        (rgb != null ? hits : misses).incrementAndGet();
+        return rgb;
+    }
+
+    /** Stores a colour; the file is rewritten shortly after, on the writer thread. */
+    public void put(String key, int rgb) {
+        synchronized (lru) { lru.put(key, rgb & 0xFFFFFF); }
+        dirty = true;
+        scheduleSave(SAVE_DELAY_MS);
+    }
+
+    /* ── persistence ──────────────────────────────────────────────── */
+    /**
+     * Starts reading the cache file on the writer thread.  Entries put
+     * before the load finishes win over the ones read from disk.
+     */
+    public CompletableFuture<Void> warmUpAsync() {
+        CompletableFuture<Void> f = CompletableFuture.runAsync(this::load, writer);
+        loaded = f;
+        return f;
+    }
+
+    /** The writer thread, shared with other small writes to the config directory such as the stats dump. */
+    public Executor diskExecutor() { return writer; }
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                SpotifyControlsMod.LOGGER.warn("[SpotifyControls] ignoring unrecognised " + file);
+                return;
+            }
+            int count = in.readInt();
+            synchronized (lru) {
+                for (int i = 0; i < count; i++) {
+                    String key = in.readUTF();
+                    int    rgb = in.readInt();
+                    lru.putIfAbsent(key, rgb);
+                }
+            }
+            SpotifyControlsMod.LOGGER.info("[SpotifyControls] loaded " + count + " cached album colours");
+        } catch (IOException e) {
+            SpotifyControlsMod.LOGGER.warn("[SpotifyControls] colour cache load failed: " + e.getMessage());
+        }
+    }
+
+    /** One save per delay window, however many puts arrive meanwhile. */
+    private void scheduleSave(long delayMs) {
+        if (!saveScheduled.compareAndSet(false, true)) return;
+        try {
+            writer.schedule(this::saveIfDirty, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            saveScheduled.set(false);       // shut down; the final flush has already run
+        }
+    }
+
+    /**
+     * Writes the cache if it changed since the last save.  Writer thread
+     * only, so two saves can never share the temp file.  Waits for the
+     * warm-up, so a save can never drop entries that have not been loaded
+     * yet; a failed write is retried with a growing delay.
+     */
+    private void saveIfDirty() {
+        saveScheduled.set(false);
+        if (!dirty) return;
+        if (!loaded.isDone()) {
+            scheduleSave(SAVE_DELAY_MS);
+            return;
+        }
+        dirty = false;
+
+        List<Map.Entry<String, Integer>> snapshot;
+        synchronized (lru) { snapshot = new ArrayList<>(lru.entrySet()); }
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Integer> e : snapshot) {
+                    out.writeUTF(e.getKey());
+                    out.writeInt(e.getValue());
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            retryDelayMs = SAVE_DELAY_MS;
+        } catch (IOException e) {
+            dirty = true;
+            SpotifyControlsMod.LOGGER.warn("[SpotifyControls] colour cache save failed, retrying in "
+                    + retryDelayMs / 1000 + " s: " + e.getMessage());
+            scheduleSave(retryDelayMs);
+            retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_MS);
+        }
+    }
+
+    /**
+     * Writes unsaved colours and stops the writer thread.  Called when the
+     * client stops; waits at most a couple of seconds.
+     */
+    public void shutdown() {
+        try {
+            writer.submit(this::saveIfDirty).get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException | RejectedExecutionException e) {
+            SpotifyControlsMod.LOGGER.warn("[SpotifyControls] colour cache flush on shutdown failed: " + e);
+        }
+        writer.shutdownNow();
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public int  size()      { synchronized (lru) { return lru.size(); } }
+    public int  capacity()  { return maxEntries;      }
+    public long hits()      { return hits.get();      }
+    public long misses()    { return misses.get();    }
+    public long evictions() { return evictions.get(); }
+}
@@ -0,0 +1,187 @@
+package com.example.spotifycontrols.art;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The one way album art gets from the network into a {@link BufferedImage}.
+ *
+ * Downloads are capped: {@link #bodyHandler()} refuses a body whose
+ * {@code Content-Length} is over the limit and aborts one that grows past
+ * it, so a wrong URL or a misbehaving CDN can't make us buffer megabytes.
+ *
+ * Decoding goes through an {@link ImageReader} and asks for only the
+ * resolution the consumer needs: the header is read first, then the
+ * reader subsamples rows and columns while it decodes, so a 640×640 cover
+ * wanted at 64 px never exists as a full-size raster.  Images whose header
+ * claims more than {@value #MAX_DIMENSION} px a side are rejected unread.
+ *
+ * Heap allocated per decode (the thread's allocation counter, where the
+ * JVM provides one) is kept as last and peak values for the stats.
+ * Thread-safe.  The cap can be set with {@code -Dspotifycontrols.art.maxBytes=262144}.
+ */
+public class ImageIngest {
+
+    public  static final int DEFAULT_MAX_BYTES = 256 * 1024;
+    /** What the consumers need: the palette samples a 64² grid, the HUD cover is smaller still. */
+    public  static final int TARGET_SIZE       = 64;
+    private static final int MAX_DIMENSION     = 4096;
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final int maxBytes;
+
+    private final AtomicLong decodes         = new AtomicLong();
+    private final AtomicLong subsampled      = new AtomicLong();
+    private final AtomicLong rejected        = new AtomicLong();
+    private final AtomicLong lastDecodeBytes = new AtomicLong();
+    private final AtomicLong peakDecodeBytes = new AtomicLong();
+
+    /** Configured from {@code spotifycontrols.art.maxBytes}. */
+    public ImageIngest() {
+        this(Integer.getInteger("spotifycontrols.art.maxBytes", DEFAULT_MAX_BYTES));
+    }
+
+    public ImageIngest(int maxBytes) { this.maxBytes = maxBytes; }
+
+    /* ── download ─────────────────────────────────────────────────── */
+    /** A body handler that completes with the bytes, or fails once the body would exceed the cap. */
+    public HttpResponse.BodyHandler<byte[]> bodyHandler() {
+        return info -> new BoundedBody(info.headers().firstValueAsLong("Content-Length").orElse(-1));
+    }
+
+    private final class BoundedBody implements HttpResponse.BodySubscriber<byte[]> {
+        final long                      declared;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        Flow.Subscription               subscription;
+        byte[]                          buf;
+        int                             count;
+
+        BoundedBody(long declared) { this.declared = declared; }
+
+        @Override public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (declared > maxBytes) {
+                refuse(declared);
+                return;
+            }
+            buf = new byte[declared >= 0 ? (int) declared : Math.min(maxBytes, 16 * 1024)];
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override public void onNext(List<ByteBuffer> items) {
+            if (result.isDone()) return;
+            for (ByteBuffer b : items) {
+                int n = b.remaining();
+                if (count + n > maxBytes) {
+                    refuse(count + (long) n);
+                    return;
+                }
+                if (count + n > buf.length)
+                    buf = Arrays.copyOf(buf, Math.min(maxBytes, Math.max(count + n, buf.length * 2)));
+                b.get(buf, count, n);
+                count += n;
+            }
+        }
+
+        @Override public void onError(Throwable t) { result.completeExceptionally(t); }
+
+        @Override public void onComplete() {
+            if (result.isDone()) return;
+            result.complete(count == buf.length ? buf : Arrays.copyOf(buf, count));
+        }
+
+        @Override public CompletionStage<byte[]> getBody() { return result; }
+
+        private void refuse(long size) {
+            rejected.incrementAndGet();
+            subscription.cancel();
+            result.completeExceptionally(new IOException("image over " + maxBytes + " bytes (" + size + "+)"));
+        }
+    }
+
+    /* ── decode ───────────────────────────────────────────────────── */
+    /**
+     * Decodes {@code encoded} at the smallest subsampling that still leaves
+     * at least {@code targetSize} px on the short side.
+     *
+     * @throws IOException if the format is unknown, the image is too large, or it is corrupt
+     */
+    public BufferedImage decode(byte[] encoded, int targetSize) throws IOException {
+        long before = allocatedBytes();
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(encoded))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IOException("unsupported image format");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0), h = reader.getHeight(0);
+                if (w > MAX_DIMENSION || h > MAX_DIMENSION) {
+                    rejected.incrementAndGet();
+                    throw new IOException("image too large: " + w + "x" + h);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(w, h) / Math.max(1, targetSize));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                    subsampled.incrementAndGet();
+                }
+                BufferedImage img = reader.read(0, param);
+                decodes.incrementAndGet();
+                return img;
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            long used = allocatedBytes() - before;
+            if (before >= 0 && used >= 0) {
+                lastDecodeBytes.set(used);
+                peakDecodeBytes.accumulateAndGet(used, Math::max);
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                    && t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled())
+                return t;
+        } catch (LinkageError e) {
+            // not a HotSpot-style JVM
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public int  maxBytes()        { return maxBytes;               }
+    public long decodes()         { return decodes.get();          }
+    /** Decodes that read fewer pixels than the source has. */
+    public long subsampled()      { return subsampled.get();       }
+    /** Downloads over the byte cap plus images over the dimension cap. */
+    public long rejected()        { return rejected.get();         }
+    /** Heap allocated by the last decode, in bytes; 0 if the JVM can't tell. */
+    public long lastDecodeBytes() { return lastDecodeBytes.get();  }
+    /** The most heap any single decode allocated. */
+    public long peakDecodeBytes() { return peakDecodeBytes.get();  }
+}
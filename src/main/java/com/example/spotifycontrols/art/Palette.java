@@ -0,0 +1,30 @@
+package com.example.spotifycontrols.art;
+
+/**
+ * The colours of one album cover, most common first, plus the accent
+ * colour the HUD uses.  Immutable.
+ */
+public final class Palette {
+
+    /** Spotify green — used when a cover has no usable colour at all. */
+    public static final int FALLBACK_RGB = 0x1DB954;
+
+    private final int[]   colours;    // 0xRRGGBB, by weight descending
+    private final float[] weights;    // share of sampled pixels, 0.0 – 1.0
+    private final int     accent;     // 0xRRGGBB
+
+    Palette(int[] colours, float[] weights, int accent) {
+        this.colours = colours;
+        this.weights = weights;
+        this.accent  = accent;
+    }
+
+    public int   size()           { return colours.length; }
+    public int   colour(int i)    { return colours[i];     }
+    public float weight(int i)    { return weights[i];     }
+
+    /** The most vivid colour that still covers a noticeable part of the cover. */
+    public int   accent()         { return accent;         }
+
+    public String accentHex()     { return String.format("#%06X", accent); }
+}
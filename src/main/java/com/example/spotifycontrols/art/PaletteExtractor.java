@@ -0,0 +1,182 @@
+package com.example.spotifycontrols.art;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Builds a {@link Palette} from an album cover.
+ *
+ * Pixels are read straight out of the raster's backing array (the
+ * {@code TYPE_3BYTE_BGR} / {@code TYPE_4BYTE_ABGR} bytes ImageIO produces
+ * for JPEGs, or packed ints), quantised to 4 bits per channel and counted
+ * in a fixed 4096-bin histogram.  Each bin also sums its exact channel
+ * values so a palette entry is the true average of its pixels rather than
+ * the bin corner.  Only the bins an image actually touches are scanned and
+ * cleared afterwards.  Everything is integer arithmetic over arrays owned by
+ * the extractor: there is no allocation per pixel, and none per image
+ * beyond the returned palette.
+ *
+ * Large images are sampled on a regular grid of at most
+ * {@value #MAX_SAMPLES_PER_AXIS}² pixels.  Not thread-safe per instance;
+ * {@link #extract} is synchronized.
+ */
+public class PaletteExtractor {
+
+    public  static final int DEFAULT_PALETTE_SIZE = 6;
+    private static final int MAX_SAMPLES_PER_AXIS = 64;
+    private static final int BINS = 4096;                // 16 × 16 × 16
+
+    // accent candidates must not be near-black or near-white (sum of r+g+b)
+    private static final int MIN_BRIGHTNESS = 61;        //  8 % of 765
+    private static final int MAX_BRIGHTNESS = 704;       // 92 % of 765
+
+    private final int   paletteSize;
+    private final int[] count = new int[BINS];
+    private final int[] sumR  = new int[BINS];
+    private final int[] sumG  = new int[BINS];
+    private final int[] sumB  = new int[BINS];
+    private final int[] used  = new int[BINS];           // bins touched by this image
+    private int         usedCount;
+    private int[]       row   = new int[0];              // fallback path only
+
+    public PaletteExtractor() { this(DEFAULT_PALETTE_SIZE); }
+
+    public PaletteExtractor(int paletteSize) { this.paletteSize = paletteSize; }
+
+    /* ── entry point ──────────────────────────────────────────────── */
+    public synchronized Palette extract(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int step = Math.max(1, Math.max(w, h) / MAX_SAMPLES_PER_AXIS);
+
+        if (!readRaster(img, step)) readViaGetRgb(img, step);
+        Palette p = buildPalette();
+        reset();
+        return p;
+    }
+
+    /** Clears only the bins this image touched — a cover uses a few hundred, not 4096. */
+    private void reset() {
+        for (int i = 0; i < usedCount; i++) {
+            int bin = used[i];
+            count[bin] = sumR[bin] = sumG[bin] = sumB[bin] = 0;
+        }
+        usedCount = 0;
+    }
+
+    /* ── raster access ────────────────────────────────────────────── */
+    /** Bulk path for the common interleaved layouts; false if the layout is unusual. */
+    private boolean readRaster(BufferedImage img, int step) {
+        Raster raster = img.getRaster();
+        if (raster.getParent() != null) return false;   // sub-image: offsets differ
+        DataBuffer db = raster.getDataBuffer();
+        int w = img.getWidth(), h = img.getHeight();
+
+        switch (img.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                if (!(db instanceof DataBufferByte bytes) || db.getNumBanks() != 1) return false;
+                if (!(raster.getSampleModel() instanceof ComponentSampleModel sm)) return false;
+                byte[] px      = bytes.getData();
+                int    base    = db.getOffset();
+                int    stride  = sm.getScanlineStride();
+                int    pxSize  = sm.getPixelStride();
+                int    rOff    = sm.getBandOffsets()[0];
+                int    gOff    = sm.getBandOffsets()[1];
+                int    bOff    = sm.getBandOffsets()[2];
+                for (int y = 0; y < h; y += step) {
+                    int i = base + y * stride;
+                    for (int x = 0; x < w; x += step, i += step * pxSize) {
+                        add(px[i + rOff] & 0xFF, px[i + gOff] & 0xFF, px[i + bOff] & 0xFF);
+                    }
+                }
+                return true;
+            }
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                if (!(db instanceof DataBufferInt ints) || db.getNumBanks() != 1) return false;
+                if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm)) return false;
+                int[] px     = ints.getData();
+                int   base   = db.getOffset();
+                int   stride = sm.getScanlineStride();
+                for (int y = 0; y < h; y += step) {
+                    int i = base + y * stride;
+                    for (int x = 0; x < w; x += step, i += step) {
+                        int rgb = px[i];
+                        add((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                    }
+                }
+                return true;
+            }
+            default -> { return false; }
+        }
+    }
+
+    /** Any other layout: one bulk getRGB per sampled row into a reused buffer. */
+    private void readViaGetRgb(BufferedImage img, int step) {
+        int w = img.getWidth(), h = img.getHeight();
+        if (row.length < w) row = new int[w];
+        for (int y = 0; y < h; y += step) {
+            img.getRGB(0, y, w, 1, row, 0, w);
+            for (int x = 0; x < w; x += step) {
+                int rgb = row[x];
+                add((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+            }
+        }
+    }
+
+    private void add(int r, int g, int b) {
+        int bin = ((r >> 4) << 8) | ((g >> 4) << 4) | (b >> 4);
+        if (count[bin]++ == 0) used[usedCount++] = bin;
+        sumR[bin] += r;
+        sumG[bin] += g;
+        sumB[bin] += b;
+    }
+
+    /* ── palette ──────────────────────────────────────────────────── */
+    private Palette buildPalette() {
+        int[]   top    = new int[paletteSize];           // bin indices, heaviest first
+        int     filled = 0;
+        long    total  = 0;
+        int     accentBin   = -1;
+        long    accentScore = 0;
+
+        for (int u = 0; u < usedCount; u++) {
+            int bin = used[u];
+            int c   = count[bin];
+            total += c;
+
+            // keep the paletteSize heaviest bins (insertion into a tiny sorted array)
+            if (filled < paletteSize || c > count[top[filled - 1]]) {
+                int pos = Math.min(filled, paletteSize - 1);
+                while (pos > 0 && count[top[pos - 1]] < c) { top[pos] = top[pos - 1]; pos--; }
+                top[pos] = bin;
+                if (filled < paletteSize) filled++;
+            }
+
+            // accent: weight × chroma², ignoring near-black and near-white
+            int r = sumR[bin] / c, g = sumG[bin] / c, b = sumB[bin] / c;
+            int brightness = r + g + b;
+            if (brightness < MIN_BRIGHTNESS || brightness > MAX_BRIGHTNESS) continue;
+            int  chroma = Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b));
+            long score  = (long) c * chroma * chroma;
+            if (score > accentScore) { accentScore = score; accentBin = bin; }
+        }
+
+        int[]   colours = new int[filled];
+        float[] weights = new float[filled];
+        for (int i = 0; i < filled; i++) {
+            colours[i] = average(top[i]);
+            weights[i] = (float) count[top[i]] / total;
+        }
+        int accent = accentBin >= 0 ? average(accentBin) : Palette.FALLBACK_RGB;
+        return new Palette(colours, weights, accent);
+    }
+
+    private int average(int bin) {
+        int c = count[bin];
+        return ((sumR[bin] / c) << 16) | ((sumG[bin] / c) << 8) | (sumB[bin] / c);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.spotifycontrols.command;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs playback commands one at a time, in the order they were issued.
+ *
+ * Commands are asynchronous: each returns a future, and the next command
+ * is started from the previous one's completion.  No thread sits parked
+ * waiting for work or for the network.  A command that has not completed
+ * after {@link #COMMAND_TIMEOUT_SECONDS} is reported as failed straight
+ * away, but the queue still waits for its request to end before starting
+ * the next one, so two commands are never on the wire at once.  That wait
+ * is bounded by the transport's per-request timeout.
+ *
+ * Pending commands coalesce before they reach the network:
+ * <ul>
+ *   <li>{@link Coalesce#LATEST} — idempotent setters (volume, repeat).  A
+ *       newer value replaces the pending one, so spamming
+ *       {@code /spotify volume} sends only the last value.</li>
+ *   <li>{@link Coalesce#COUNT} — skip / previous.  Back-to-back pending
+ *       requests of the same kind merge into one entry that remembers how
+ *       many were asked for; only adjacent ones merge, so a skip is never
+ *       reordered around a different command.  One entry counts at most
+ *       {@link #MAX_COUNT}; requests past that are rejected like an
+ *       overflow, so a macro can't turn one entry into a burst of calls.</li>
+ * </ul>
+ * The queue is bounded; {@link #submit} returns {@code false} when full.
+ */
+public class CommandQueue {
+
+    public static final int  DEFAULT_CAPACITY        = 16;
+    public static final long COMMAND_TIMEOUT_SECONDS = 15;
+    /** Most requests one {@link Coalesce#COUNT} entry merges, e.g. skips sent as one burst. */
+    public static final int  MAX_COUNT               = 5;
+
+    public enum Coalesce { NONE, LATEST, COUNT }
+
+    /** One queued command; {@code times} is > 1 only for merged {@link Coalesce#COUNT} entries. */
+    @FunctionalInterface
+    public interface Task { CompletableFuture<?> run(int times); }
+
+    private static final class Entry {
+        final String   key;
+        final Coalesce mode;
+        Task                task;
+        Consumer<Exception> onError;
+        int                 times = 1;
+
+        Entry(String key, Coalesce mode, Task task, Consumer<Exception> onError) {
+            this.key     = key;
+            this.mode    = mode;
+            this.task    = task;
+            this.onError = onError;
+        }
+    }
+
+    private final int               capacity;
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private boolean                 busy    = false;   // a command is executing; guarded by pending
+    private boolean                 running = true;    // guarded by pending
+    private CompletableFuture<?>    current;           // guarded by pending
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected  = new AtomicLong();
+    private final AtomicLong executed  = new AtomicLong();
+    private final AtomicLong timedOut  = new AtomicLong();
+
+    public CommandQueue() { this(DEFAULT_CAPACITY); }
+
+    public CommandQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /* ── producers (any thread) ───────────────────────────────────── */
+    /**
+     * Queues a command.
+     *
+     * @param key  coalescing key, e.g. "volume"; ignored for {@link Coalesce#NONE}
+     * @return {@code false} if the queue is full or shut down and the command was dropped
+     */
+    public boolean submit(String key, Coalesce mode, Task task, Consumer<Exception> onError) {
+        synchronized (pending) {
+            if (!running) return false;
+            submitted.incrementAndGet();
+
+            if (mode == Coalesce.LATEST) {
+                // drop the older pending value; the new one goes to the back
+                for (Iterator<Entry> it = pending.iterator(); it.hasNext(); ) {
+                    if (key.equals(it.next().key)) {
+                        it.remove();
+                        coalesced.incrementAndGet();
+                        break;
+                    }
+                }
+            } else if (mode == Coalesce.COUNT) {
+                Entry last = pending.peekLast();
+                if (last != null && last.mode == Coalesce.COUNT && key.equals(last.key)) {
+                    if (last.times >= MAX_COUNT) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                    last.times++;
+                    last.task    = task;
+                    last.onError = onError;
+                    coalesced.incrementAndGet();
+                    return true;
+                }
+            }
+
+            if (pending.size() >= capacity) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            pending.addLast(new Entry(mode == Coalesce.NONE ? null : key, mode, task, onError));
+            if (busy) return true;
+            busy = true;
+        }
+        startNext();
+        return true;
+    }
+
+    /* ── execution (chained on completions) ───────────────────────── */
+    private void startNext() {
+        Entry e;
+        synchronized (pending) {
+            e = running ? pending.pollFirst() : null;
+            if (e == null) {
+                busy = false;
+                return;
+            }
+        }
+
+        CompletableFuture<?> started;
+        try {
+            started = e.task.run(e.times);
+        } catch (RuntimeException ex) {
+            started = CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<?> f = started;
+        synchronized (pending) { current = f; }
+
+        // the error is reported once, at the deadline or on failure, whichever comes first
+        AtomicBoolean reported = new AtomicBoolean();
+        CompletableFuture.delayedExecutor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS).execute(() -> {
+            if (!f.isDone() && reported.compareAndSet(false, true)) {
+                timedOut.incrementAndGet();
+                e.onError.accept(new TimeoutException("no reply after " + COMMAND_TIMEOUT_SECONDS + " s"));
+            }
+        });
+        // the next command starts only once this one's request has really ended
+        f.whenComplete((v, ex) -> {
+            executed.incrementAndGet();
+            if (ex != null && reported.compareAndSet(false, true)) e.onError.accept(unwrap(ex));
+            startNext();
+        });
+    }
+
+    private static Exception unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+        return t instanceof Exception ex ? ex : new RuntimeException(t);
+    }
+
+    /**
+     * Drops pending commands and cancels the follow-up stages of the one in
+     * flight.  Its HTTP exchange ends with the transport, which the mod
+     * shuts down straight after.
+     */
+    public void shutdown() {
+        CompletableFuture<?> f;
+        synchronized (pending) {
+            running = false;
+            pending.clear();
+            f = current;
+        }
+        if (f != null) f.cancel(true);
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public int  depth()     { synchronized (pending) { return pending.size(); } }
+    public long submitted() { return submitted.get(); }
+    public long coalesced() { return coalesced.get(); }
+    public long rejected()  { return rejected.get();  }
+    public long executed()  { return executed.get();  }
+    /** Commands reported as failed because they outlived {@link #COMMAND_TIMEOUT_SECONDS}. */
+    public long timedOut()  { return timedOut.get();  }
+}
@@ -1,6 +1,8 @@
 package com.example.spotifycontrols.command;
 
 import com.example.spotifycontrols.SpotifyControlsMod;
+import com.example.spotifycontrols.playback.PlaybackState;
+import com.example.spotifycontrols.spotify.RequestScheduler;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
@@ -12,6 +14,11 @@ import net.minecraft.text.ClickEvent;
 import net.minecraft.text.HoverEvent;
 import net.minecraft.text.Text;
 
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
 /**
  * All /spotify sub-commands.
  *
@@ -23,9 +30,19 @@ import net.minecraft.text.Text;
  * Client commands execute on the client in BOTH singleplayer and
  * multiplayer, so every /spotify command works in both modes without
  * any server-side mod.
+ *
+ * Replies to commands that finish in the background go through
+ * {@link #feedback}, which hands them to the client thread.
  */
 public class SpotifyCommand {
 
+    /** Every playback command goes through this single ordered queue. */
+    private static final CommandQueue     queue       = new CommandQueue();
+    private static final TrackSuggestions suggestions = new TrackSuggestions();
+
+    /** A track URI as inserted by a {@link TrackSuggestions} suggestion. */
+    private static final Pattern TRACK_URI = Pattern.compile("spotify:track:[A-Za-z0-9]{22}");
+
     /* ── registration ───────────────────────────────────────────── */
     public static void register() {
         ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) ->
@@ -42,6 +59,7 @@ public class SpotifyCommand {
                         .executes(SpotifyCommand::resume))
                 .then(ClientCommandManager.literal("play")
                         .then(ClientCommandManager.argument("query", StringArgumentType.greedyString())
+                                .suggests(suggestions)
                                 .executes(SpotifyCommand::playSearch)))
                 .then(ClientCommandManager.literal("pause")
                         .executes(SpotifyCommand::pause))
@@ -59,6 +77,20 @@ public class SpotifyCommand {
                         .executes(SpotifyCommand::current))
                 .then(ClientCommandManager.literal("status")
                         .executes(SpotifyCommand::status))
+                .then(ClientCommandManager.literal("art")
+                        .then(ClientCommandManager.literal("on")
+                                .executes(ctx -> albumArt(ctx, true)))
+                        .then(ClientCommandManager.literal("off")
+                                .executes(ctx -> albumArt(ctx, false))))
+                .then(ClientCommandManager.literal("hud")
+                        .then(ClientCommandManager.literal("on")
+                                .executes(ctx -> nowPlaying(ctx, true)))
+                        .then(ClientCommandManager.literal("off")
+                                .executes(ctx -> nowPlaying(ctx, false))))
+                .then(ClientCommandManager.literal("stats")
+                        .executes(SpotifyCommand::stats)
+                        .then(ClientCommandManager.literal("dump")
+                                .executes(SpotifyCommand::dumpStats)))
         );
     }
 
@@ -78,11 +110,11 @@ public class SpotifyCommand {
                                 .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
                                         Text.literal("§eClick to open Spotify login"))));
 
-                ctx.getSource().sendFeedback(
+                feedback(ctx,
                         Text.literal("§aClick the link to log in: ").append(link));
 
             } catch (Exception e) {
-                ctx.getSource().sendFeedback(Text.literal("§cAuth failed: " + e.getMessage()));
+                feedback(ctx, Text.literal("§cAuth failed: " + e.getMessage()));
             }
         }).start();
 
@@ -98,51 +130,57 @@ public class SpotifyCommand {
     /* ── playback ───────────────────────────────────────────────── */
     private static int resume(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
-        run(ctx, () -> {
-            SpotifyControlsMod.getSpotifyAPI().play();
-            ctx.getSource().sendFeedback(Text.literal("§a▶ Resumed"));
-        }, "resume");
+        run(ctx, SpotifyControlsMod.notifyResumed(), () -> SpotifyControlsMod.getSpotifyAPI().playAsync()
+                .thenRun(() -> feedback(ctx, Text.literal("§a▶ Resumed"))), "resume");
         return 1;
     }
 
     private static int playSearch(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
-        String query = StringArgumentType.getString(ctx, "query");
-        run(ctx, () -> {
-            String info = SpotifyControlsMod.getSpotifyAPI().searchAndPlay(query);
-            if (info != null)
-                ctx.getSource().sendFeedback(Text.literal("§a♪ Now playing: §f" + info));
-            else
-                ctx.getSource().sendFeedback(Text.literal("§cNo results for: " + query));
-        }, "play");
+        String query = StringArgumentType.getString(ctx, "query").trim();
+        if (TRACK_URI.matcher(query).matches()) {
+            // picked from the suggestions — play it without searching again
+            String name = suggestions.describe(query);
+            run(ctx, SpotifyControlsMod.notifyTrackChanging(), () -> SpotifyControlsMod.getSpotifyAPI().playTrackAsync(query)
+                    .thenRun(() -> feedback(ctx,
+                            Text.literal("§a♪ Now playing: §f" + (name != null ? name : query)))), "play");
+            return 1;
+        }
+        // the bar only restarts once a track has matched; "no results" changes nothing
+        LatePending change = new LatePending();
+        run(ctx, change, () -> SpotifyControlsMod.getSpotifyAPI()
+                .searchAndPlayAsync(query, () -> change.set(SpotifyControlsMod.notifyTrackChanging()))
+                .thenAccept(info -> {
+                    if (info != null)
+                        feedback(ctx, Text.literal("§a♪ Now playing: §f" + info));
+                    else
+                        feedback(ctx, Text.literal("§cNo results for: " + query));
+                }), "play");
         return 1;
     }
 
     private static int pause(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
-        run(ctx, () -> {
-            SpotifyControlsMod.getSpotifyAPI().pause();
-            SpotifyControlsMod.notifyPaused();          // restore XP bar instantly
-            ctx.getSource().sendFeedback(Text.literal("§e⏸ Paused"));
-        }, "pause");
+        run(ctx, SpotifyControlsMod.notifyPaused(), () -> SpotifyControlsMod.getSpotifyAPI().pauseAsync()   // restores XP bar instantly
+                .thenRun(() -> feedback(ctx, Text.literal("§e⏸ Paused"))), "pause");
         return 1;
     }
 
     private static int skip(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
-        run(ctx, () -> {
-            SpotifyControlsMod.getSpotifyAPI().skip();
-            ctx.getSource().sendFeedback(Text.literal("§a⏭ Skipped"));
-        }, "skip");
+        runCounted(ctx, SpotifyControlsMod.notifyTrackChanging(), times ->
+                repeat(times, () -> SpotifyControlsMod.getSpotifyAPI().skipAsync())
+                        .thenRun(() -> feedback(ctx,
+                                Text.literal("§a⏭ Skipped" + (times > 1 ? " ×" + times : "")))), "skip");
         return 1;
     }
 
     private static int previous(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
-        run(ctx, () -> {
-            SpotifyControlsMod.getSpotifyAPI().previous();
-            ctx.getSource().sendFeedback(Text.literal("§a⏮ Previous"));
-        }, "previous");
+        runCounted(ctx, SpotifyControlsMod.notifyRestarted(), times ->
+                repeat(times, () -> SpotifyControlsMod.getSpotifyAPI().previousAsync())
+                        .thenRun(() -> feedback(ctx,
+                                Text.literal("§a⏮ Previous" + (times > 1 ? " ×" + times : "")))), "previous");
         return 1;
     }
 
@@ -150,32 +188,27 @@ public class SpotifyCommand {
     private static int loop(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
         String mode = StringArgumentType.getString(ctx, "mode");
-        run(ctx, () -> {
-            SpotifyControlsMod.getSpotifyAPI().setRepeatMode(mode);
-            ctx.getSource().sendFeedback(Text.literal("§a🔁 Loop → " + mode));
-        }, "loop");
+        runLatest(ctx, SpotifyControlsMod.notifyRepeat(mode), () -> SpotifyControlsMod.getSpotifyAPI().setRepeatModeAsync(mode)
+                .thenRun(() -> feedback(ctx, Text.literal("§a🔁 Loop → " + mode))), "loop");
         return 1;
     }
 
     private static int volume(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
         int pct = IntegerArgumentType.getInteger(ctx, "percent");
-        run(ctx, () -> {
-            SpotifyControlsMod.getSpotifyAPI().setVolume(pct);
-            ctx.getSource().sendFeedback(Text.literal("§a🔊 Volume → " + pct + "%"));
-        }, "volume");
+        runLatest(ctx, SpotifyControlsMod.notifyVolume(pct), () -> SpotifyControlsMod.getSpotifyAPI().setVolumeAsync(pct)
+                .thenRun(() -> feedback(ctx, Text.literal("§a🔊 Volume → " + pct + "%"))), "volume");
         return 1;
     }
 
     private static int current(CommandContext<FabricClientCommandSource> ctx) {
         if (!checkAuth(ctx)) return 0;
-        run(ctx, () -> {
-            String info = SpotifyControlsMod.getSpotifyAPI().getCurrentTrackInfo();
-            ctx.getSource().sendFeedback(
-                    info != null && !info.isEmpty()
-                            ? Text.literal("§a♪ Now Playing: §f" + info)
-                            : Text.literal("§eNothing playing"));
-        }, "current");
+        run(ctx, PlaybackState.Pending.NONE, () -> SpotifyControlsMod.getSpotifyAPI()
+                .getPlayerAsync(RequestScheduler.Priority.INTERACTIVE)      // joins a poll in flight
+                .thenAccept(p -> feedback(ctx,
+                        p.hasTrack()
+                                ? Text.literal("§a♪ Now Playing: §f" + p.displayName())
+                                : Text.literal("§eNothing playing"))), "current");
         return 1;
     }
 
@@ -187,6 +220,44 @@ public class SpotifyCommand {
         return 1;
     }
 
+    /* ── HUD ────────────────────────────────────────────────────── */
+    private static int albumArt(CommandContext<FabricClientCommandSource> ctx, boolean on) {
+        SpotifyControlsMod.getAlbumArtHud().setEnabled(on);
+        ctx.getSource().sendFeedback(Text.literal(on ? "§aAlbum art HUD on" : "§eAlbum art HUD off"));
+        return 1;
+    }
+
+    private static int nowPlaying(CommandContext<FabricClientCommandSource> ctx, boolean on) {
+        SpotifyControlsMod.getNowPlayingHud().setEnabled(on);
+        ctx.getSource().sendFeedback(Text.literal(on ? "§aNow-playing HUD on" : "§eNow-playing HUD off"));
+        return 1;
+    }
+
+    /* ── diagnostics ────────────────────────────────────────────── */
+    private static int stats(CommandContext<FabricClientCommandSource> ctx) {
+        ctx.getSource().sendFeedback(Text.literal("§6Spotify Controls stats"));
+        for (String line : SpotifyControlsMod.getMetrics().summary())
+            ctx.getSource().sendFeedback(Text.literal("§7" + line));
+        return 1;
+    }
+
+    private static int dumpStats(CommandContext<FabricClientCommandSource> ctx) {
+        try {
+            // file I/O stays off the client thread, on the disk thread the colour cache already owns
+            SpotifyControlsMod.getColourCache().diskExecutor().execute(() -> {
+                try {
+                    Path file = SpotifyControlsMod.getMetrics().dump();
+                    feedback(ctx, Text.literal("§aStats written to §f" + file));
+                } catch (Exception e) {
+                    feedback(ctx, Text.literal("§cStats dump failed: " + e.getMessage()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ctx.getSource().sendFeedback(Text.literal("§cStats dump failed: shutting down"));
+        }
+        return 1;
+    }
+
     /* ── helpers ────────────────────────────────────────────────── */
     private static boolean checkAuth(CommandContext<FabricClientCommandSource> ctx) {
         if (!SpotifyControlsMod.getTokenStorage().hasToken()) {
@@ -197,21 +268,75 @@ public class SpotifyCommand {
     }
 
     /**
-     * Runs an API call on a background thread.  Errors are reported back
-     * to chat automatically.
+     * Queues an API call on the ordered command queue.  The command's
+     * optimistic state change (already applied by the caller) is
+     * acknowledged on success and rolled back on failure.  Errors are
+     * reported back to chat automatically; either way the playback clock
+     * is asked to re-sync so the progress bar reflects the real state.
      */
-    private static void run(CommandContext<FabricClientCommandSource> ctx,
-                            CheckedRunnable action, String label) {
-        new Thread(() -> {
-            try {
-                action.run();
-            } catch (Exception e) {
-                ctx.getSource().sendFeedback(
-                        Text.literal("§c" + label + " failed: " + e.getMessage()));
-            }
-        }).start();
+    private static void run(CommandContext<FabricClientCommandSource> ctx, PlaybackState.Pending optimistic,
+                            AsyncAction action, String label) {
+        submit(ctx, CommandQueue.Coalesce.NONE, optimistic, times -> action.run(), label);
+    }
+
+    /** Like {@link #run}, but a newer pending command with the same label replaces this one. */
+    private static void runLatest(CommandContext<FabricClientCommandSource> ctx, PlaybackState.Pending optimistic,
+                                  AsyncAction action, String label) {
+        submit(ctx, CommandQueue.Coalesce.LATEST, optimistic, times -> action.run(), label);
+    }
+
+    /** Like {@link #run}, but adjacent pending commands with the same label merge into one count. */
+    private static void runCounted(CommandContext<FabricClientCommandSource> ctx, PlaybackState.Pending optimistic,
+                                   CommandQueue.Task action, String label) {
+        submit(ctx, CommandQueue.Coalesce.COUNT, optimistic, action, label);
+    }
+
+    private static void submit(CommandContext<FabricClientCommandSource> ctx, CommandQueue.Coalesce mode,
+                               PlaybackState.Pending optimistic, CommandQueue.Task action, String label) {
+        boolean queued = queue.submit(label, mode,
+                times -> action.run(times).thenRun(() -> {
+                    optimistic.ack();
+                    SpotifyControlsMod.notifyCommandSent();
+                }),
+                e -> {
+                    optimistic.cancel();
+                    SpotifyControlsMod.notifyCommandSent();
+                    feedback(ctx,
+                            Text.literal("§c" + label + " failed: "
+                                    + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName())));
+                });
+        if (!queued) {
+            optimistic.cancel();
+            ctx.getSource().sendFeedback(Text.literal("§cToo many pending commands — " + label + " dropped"));
+        }
     }
 
+    /** Chat feedback from any thread — delivered on the client thread at the next tick. */
+    private static void feedback(CommandContext<FabricClientCommandSource> ctx, Text message) {
+        if (!SpotifyControlsMod.getMainThread().post(() -> ctx.getSource().sendFeedback(message)))
+            SpotifyControlsMod.LOGGER.warn("[SpotifyControls] chat feedback dropped: " + message.getString());
+    }
+
+    /** Runs {@code step} {@code times} times, each call starting after the previous one succeeded. */
+    private static CompletableFuture<Void> repeat(int times, AsyncAction step) {
+        CompletableFuture<Void> f = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < times; i++) f = f.thenCompose(v -> step.run().thenApply(r -> null));
+        return f;
+    }
+
+    public static CommandQueue     getQueue()       { return queue;       }
+    public static TrackSuggestions getSuggestions() { return suggestions; }
+
     @FunctionalInterface
-    interface CheckedRunnable { void run() throws Exception; }
+    interface AsyncAction { CompletableFuture<?> run(); }
+
+    /** An optimistic change that is only made partway through the command; until then ack / cancel do nothing. */
+    private static final class LatePending implements PlaybackState.Pending {
+        private volatile PlaybackState.Pending target = PlaybackState.Pending.NONE;
+
+        void set(PlaybackState.Pending p) { target = p; }
+
+        @Override public void ack()    { target.ack();    }
+        @Override public void cancel() { target.cancel(); }
+    }
 }
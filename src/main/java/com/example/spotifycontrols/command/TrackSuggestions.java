@@ -0,0 +1,201 @@
+package com.example.spotifycontrols.command;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+import com.example.spotifycontrols.spotify.RequestScheduler;
+import com.example.spotifycontrols.spotify.SpotifyAPI.SearchResult;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.text.Text;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live tab-completion for {@code /spotify play <query>}.
+ *
+ * Brigadier asks for suggestions on every keystroke, so lookups are
+ * debounced: a lookup waits {@link #DEBOUNCE_MS} before searching, and a
+ * newer keystroke supersedes it — cancelling its search if one is already
+ * in flight.  Results are kept in a bounded LRU keyed by the normalised
+ * query.  A query that extends a cached one ("bohe" → "bohem") is first
+ * answered by filtering the cached hits locally and only goes to the
+ * network when none of them match.
+ *
+ * Each suggestion inserts the track's {@code spotify:track:} URI, which
+ * {@link SpotifyCommand} plays directly, without a second search.
+ */
+public class TrackSuggestions implements SuggestionProvider<FabricClientCommandSource> {
+
+    public static final int  MIN_QUERY_LENGTH = 2;
+    public static final int  MAX_SUGGESTIONS  = 8;
+    public static final long DEBOUNCE_MS      = 250;
+    private static final int CACHE_CAPACITY   = 128;
+
+    /** One keystroke's lookup; superseded lookups complete empty. */
+    private static final class Lookup {
+        final String                                  query;
+        final CompletableFuture<List<SearchResult>>   result = new CompletableFuture<>();
+        volatile CompletableFuture<List<SearchResult>> search;
+
+        Lookup(String query) { this.query = query; }
+    }
+
+    private final Map<String, List<SearchResult>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, List<SearchResult>> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+    private final AtomicReference<Lookup>  latest = new AtomicReference<>();
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLong lookups    = new AtomicLong();
+    private final AtomicLong cacheHits  = new AtomicLong();
+    private final AtomicLong prefixHits = new AtomicLong();
+    private final AtomicLong searches   = new AtomicLong();
+    private final AtomicLong cancelled  = new AtomicLong();
+
+    public TrackSuggestions() {
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SpotifyControls-Suggest");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /* ── Brigadier entry point (client thread) ────────────────────── */
+    @Override
+    public CompletableFuture<Suggestions> getSuggestions(CommandContext<FabricClientCommandSource> ctx,
+                                                         SuggestionsBuilder builder) {
+        String query = normalise(builder.getRemaining());
+        if (query.length() < MIN_QUERY_LENGTH || query.startsWith("spotify:")
+                || !SpotifyControlsMod.getTokenStorage().hasToken())
+            return builder.buildFuture();
+
+        lookups.incrementAndGet();
+        List<SearchResult> known = cached(query);
+        if (known != null) {
+            supersede(latest.getAndSet(null));
+            return CompletableFuture.completedFuture(build(builder, known));
+        }
+
+        Lookup mine = new Lookup(query);
+        supersede(latest.getAndSet(mine));
+        try {
+            timer.schedule(() -> search(mine), DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {          // shutting down
+            return builder.buildFuture();
+        }
+        // the chat screen reads the result on the client thread
+        return mine.result.thenApplyAsync(hits -> build(builder, hits), SpotifyControlsMod.getMainThread());
+    }
+
+    /* ── lookup ───────────────────────────────────────────────────── */
+    private void search(Lookup l) {
+        if (latest.get() != l || l.result.isDone()) return;    // a newer keystroke took over
+
+        searches.incrementAndGet();
+        CompletableFuture<List<SearchResult>> f = SpotifyControlsMod.getSpotifyAPI()
+                .searchAsync(l.query, MAX_SUGGESTIONS, RequestScheduler.Priority.BACKGROUND);
+        l.search = f;
+        if (l.result.isDone()) f.cancel(true);                 // superseded while starting
+
+        f.whenComplete((hits, ex) -> {
+            if (ex == null) remember(l.query, hits);
+            l.result.complete(ex == null ? hits : List.of());
+            latest.compareAndSet(l, null);
+        });
+    }
+
+    private void supersede(Lookup old) {
+        if (old == null) return;
+        old.result.complete(List.of());
+        CompletableFuture<List<SearchResult>> s = old.search;
+        if (s != null && s.cancel(true)) cancelled.incrementAndGet();
+    }
+
+    /**
+     * Hits for {@code query} without a request: an exact cache entry, or
+     * the longest cached prefix filtered down to hits that still match.
+     * Null when the network has to be asked.
+     */
+    private List<SearchResult> cached(String query) {
+        synchronized (cache) {
+            List<SearchResult> exact = cache.get(query);
+            if (exact != null) {
+                cacheHits.incrementAndGet();
+                return exact;
+            }
+            for (int end = query.length() - 1; end >= MIN_QUERY_LENGTH; end--) {
+                List<SearchResult> base = cache.get(query.substring(0, end));
+                if (base == null) continue;
+                List<SearchResult> narrowed = narrow(base, query);
+                if (narrowed.isEmpty()) return null;
+                prefixHits.incrementAndGet();
+                return narrowed;
+            }
+            return null;
+        }
+    }
+
+    private void remember(String query, List<SearchResult> hits) {
+        synchronized (cache) { cache.put(query, hits); }
+    }
+
+    /** Hits whose "name - artists" contains every word of the query. */
+    private static List<SearchResult> narrow(List<SearchResult> hits, String query) {
+        String[] words = query.split(" ");
+        List<SearchResult> out = new ArrayList<>(hits.size());
+        outer:
+        for (SearchResult hit : hits) {
+            String text = hit.displayName().toLowerCase(Locale.ROOT);
+            for (String w : words) if (!text.contains(w)) continue outer;
+            out.add(hit);
+        }
+        return out;
+    }
+
+    private static Suggestions build(SuggestionsBuilder builder, List<SearchResult> hits) {
+        for (SearchResult hit : hits) builder.suggest(hit.uri, Text.literal(hit.displayName()));
+        return builder.build();
+    }
+
+    private static String normalise(String raw) {
+        return raw.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /* ── used by /spotify play <uri> ──────────────────────────────── */
+    /** "Song - Artist" for a URI that was offered as a suggestion, or null. */
+    public String describe(String uri) {
+        synchronized (cache) {
+            for (List<SearchResult> hits : cache.values())
+                for (SearchResult hit : hits)
+                    if (hit.uri.equals(uri)) return hit.displayName();
+        }
+        return null;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        supersede(latest.getAndSet(null));
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long lookups()    { return lookups.get();    }
+    public long cacheHits()  { return cacheHits.get();  }
+    public long prefixHits() { return prefixHits.get(); }
+    public long searches()   { return searches.get();   }
+    public long cancelled()  { return cancelled.get();  }
+}
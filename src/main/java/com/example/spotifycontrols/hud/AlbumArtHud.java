@@ -0,0 +1,82 @@
+package com.example.spotifycontrols.hud;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderTickCounter;
+import net.minecraft.util.Identifier;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Optional HUD widget: the current album cover, just left of the XP bar,
+ * or inside the now-playing panel while that is shown ({@code docked}).
+ *
+ * Each frame it gives {@link AlbumArtTextures} its upload slot and draws
+ * the cover if that is resident — a map lookup and one textured quad, with
+ * no allocation of its own.  Until the cover is uploaded nothing is drawn.
+ *
+ * Off by default; {@code /spotify art on|off}, or start with
+ * {@code -Dspotifycontrols.hud.albumArt=true}.
+ */
+public class AlbumArtHud implements HudRenderCallback {
+
+    private static final int SIZE       = 20;      // scaled pixels
+    private static final int HOTBAR_W   = 182;
+    private static final int XP_BAR_Y   = 29;      // from the bottom of the screen
+    private static final int XP_BAR_H   = 5;
+    private static final int GAP        = 2;
+
+    private final AlbumArtTextures textures;
+    private final BooleanSupplier  docked;
+    private volatile boolean       enabled = Boolean.getBoolean("spotifycontrols.hud.albumArt");
+
+    /** @param docked true while another widget draws the cover through {@link #cover} */
+    public AlbumArtHud(AlbumArtTextures textures, BooleanSupplier docked) {
+        this.textures = textures;
+        this.docked   = docked;
+    }
+
+    /* ── render thread ────────────────────────────────────────────── */
+    @Override
+    public void onHudRender(DrawContext ctx, RenderTickCounter tickCounter) {
+        if (!enabled) return;
+        MinecraftClient client = MinecraftClient.getInstance();
+        textures.uploadPending(client);
+        if (client.options.hudHidden || docked.getAsBoolean()) return;
+
+        Identifier cover = cover(SpotifyControlsMod.getSnapshot());
+        if (cover == null) return;
+
+        // bottom-aligned with the XP bar, so it clears the off-hand slot below
+        int x = ctx.getScaledWindowWidth() / 2 - HOTBAR_W / 2 - GAP - SIZE;
+        int y = ctx.getScaledWindowHeight() - XP_BAR_Y + XP_BAR_H - SIZE;
+        ctx.drawTexture(cover, x, y, 0, 0, SIZE, SIZE, SIZE, SIZE);
+    }
+
+    /** The uploaded cover of {@code s}, or null when off, there is no track, or it isn't resident yet. */
+    public Identifier cover(PlaybackSnapshot s) {
+        return enabled && s.hasTrack() ? textures.texture(albumKey(s)) : null;
+    }
+
+    /* ── settings ─────────────────────────────────────────────────── */
+    public boolean isEnabled() { return enabled; }
+
+    /** Turning it on asks for the current cover straight away. */
+    public void setEnabled(boolean on) {
+        enabled = on;
+        if (on) request(SpotifyControlsMod.getSnapshot(), null);
+    }
+
+    /** Starts loading the cover of {@code s}; {@code encoded} when the bytes are already at hand. */
+    public void request(PlaybackSnapshot s, byte[] encoded) {
+        if (enabled && s.hasTrack()) textures.request(albumKey(s), s.albumImageUrl, encoded);
+    }
+
+    /** Same key as the colour cache: album id, or the image URL when there is none. */
+    private static String albumKey(PlaybackSnapshot s) {
+        return s.albumId != null ? s.albumId : s.albumImageUrl;
+    }
+}
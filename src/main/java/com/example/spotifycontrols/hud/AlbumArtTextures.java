@@ -0,0 +1,223 @@
+package com.example.spotifycontrols.hud;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+import com.example.spotifycontrols.art.ImageIngest;
+import com.example.spotifycontrols.metrics.LatencyHistogram;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.util.Identifier;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Album covers as GPU textures, for the HUD.
+ *
+ * A cover goes through three stages:
+ * <ol>
+ *   <li>{@link #request} — any thread.  Uses the bytes it is given (e.g.
+ *       from a prefetch) or downloads them.</li>
+ *   <li>decode — on the {@code SpotifyControls-ArtDecode} thread, through
+ *       {@link ImageIngest} at the size the HUD needs, into a
+ *       {@link NativeImage} in native memory, then queued for upload.</li>
+ *   <li>{@link #uploadPending} — render thread, once per frame, at most
+ *       {@code uploadsPerFrame} textures, so a burst of covers is spread
+ *       over several frames instead of hitching one.</li>
+ * </ol>
+ *
+ * Uploaded textures live in an LRU of {@code capacity} albums.  An evicted
+ * texture is destroyed through the {@code TextureManager}, which closes it
+ * and frees both the GL texture and its image.  Lookups on the render
+ * thread allocate nothing.
+ */
+public class AlbumArtTextures {
+
+    public static final int DEFAULT_CAPACITY          = 8;
+    public static final int DEFAULT_UPLOADS_PER_FRAME = 1;
+
+    /** A decoded cover waiting for the render thread. */
+    private static final class Decoded {
+        final String      albumKey;
+        final NativeImage image;
+
+        Decoded(String albumKey, NativeImage image) {
+            this.albumKey = albumKey;
+            this.image    = image;
+        }
+    }
+
+    private final Function<String, CompletableFuture<byte[]>> download;
+    private final ImageIngest                                 ingest;
+    private final int                                         capacity;
+    private final int                                         uploadsPerFrame;
+    private final LatencyHistogram                            decodeTime;
+
+    private final ExecutorService                   decoder;
+    private final Set<String>                       known = ConcurrentHashMap.newKeySet();   // requested, decoded or resident
+    private final ConcurrentLinkedQueue<Decoded>    ready = new ConcurrentLinkedQueue<>();
+    private final LinkedHashMap<String, Identifier> resident;                               // render thread only
+    private int                                     nextId;                                 // render thread only
+    private volatile int                            residentCount;                          // for stats on other threads
+    private volatile boolean                        stopped;
+
+    private final AtomicLong decoded   = new AtomicLong();
+    private final AtomicLong failed    = new AtomicLong();
+    private final AtomicLong uploaded  = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param download fetches an image URL; completes with null when there is nothing to show
+     */
+    public AlbumArtTextures(Function<String, CompletableFuture<byte[]>> download, ImageIngest ingest,
+                            LatencyHistogram decodeTime) {
+        this(download, ingest, decodeTime, DEFAULT_CAPACITY,
+                Integer.getInteger("spotifycontrols.hud.uploadsPerFrame", DEFAULT_UPLOADS_PER_FRAME));
+    }
+
+    public AlbumArtTextures(Function<String, CompletableFuture<byte[]>> download, ImageIngest ingest,
+                            LatencyHistogram decodeTime, int capacity, int uploadsPerFrame) {
+        this.download        = download;
+        this.ingest          = ingest;
+        this.decodeTime      = decodeTime;
+        this.capacity        = capacity;
+        this.uploadsPerFrame = Math.max(1, uploadsPerFrame);
+        this.resident        = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+        this.decoder         = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "SpotifyControls-ArtDecode");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /* ── request (any thread) ─────────────────────────────────────── */
+    /**
+     * Makes sure the cover of {@code albumKey} is on its way to the GPU.
+     * Does nothing if it is already resident or in the pipeline.
+     *
+     * @param encoded the image bytes if the caller already has them, else null to download {@code imageUrl}
+     */
+    public void request(String albumKey, String imageUrl, byte[] encoded) {
+        if (stopped || albumKey == null || !known.add(albumKey)) return;
+
+        CompletableFuture<byte[]> bytes = encoded != null
+                ? CompletableFuture.completedFuture(encoded)
+                : imageUrl != null ? download.apply(imageUrl) : CompletableFuture.completedFuture(null);
+        bytes.thenAcceptAsync(b -> decode(albumKey, b), decoder)
+             .exceptionally(e -> {
+                 known.remove(albumKey);             // let a later request try again
+                 failed.incrementAndGet();
+                 SpotifyControlsMod.LOGGER.warn("[SpotifyControls] album art: " + e.getMessage());
+                 return null;
+             });
+    }
+
+    /* ── decode (decoder thread) ──────────────────────────────────── */
+    private void decode(String albumKey, byte[] encoded) {
+        if (encoded == null) {
+            known.remove(albumKey);
+            return;
+        }
+        long start = System.nanoTime();
+        NativeImage image;
+        try {
+            image = toNativeImage(ingest.decode(encoded, ImageIngest.TARGET_SIZE));
+        } catch (IOException e) {
+            known.remove(albumKey);
+            failed.incrementAndGet();
+            SpotifyControlsMod.LOGGER.warn("[SpotifyControls] album art decode: " + e.getMessage());
+            return;
+        } finally {
+            decodeTime.recordSince(start);
+        }
+        decoded.incrementAndGet();
+        ready.add(new Decoded(albumKey, image));
+        if (stopped) drainReady();                   // raced with shutdown — don't leak it
+    }
+
+    /** Copies ARGB pixels into a new RGBA image; {@code setColor} takes ABGR. */
+    private static NativeImage toNativeImage(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int[] argb = img.getRGB(0, 0, w, h, null, 0, w);
+        NativeImage out = new NativeImage(w, h, false);
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0; x < w; x++, i++) {
+                int c = argb[i];
+                out.setColor(x, y, (c & 0xFF00FF00) | (c & 0xFF) << 16 | (c >> 16) & 0xFF);
+            }
+        }
+        return out;
+    }
+
+    /* ── render thread ────────────────────────────────────────────── */
+    /** Uploads up to {@code uploadsPerFrame} decoded covers.  Call once per frame. */
+    public void uploadPending(MinecraftClient client) {
+        for (int i = 0; i < uploadsPerFrame; i++) {
+            Decoded d = ready.poll();
+            if (d == null) return;
+            if (stopped) {
+                d.image.close();
+                return;
+            }
+            Identifier id = Identifier.of(SpotifyControlsMod.MOD_ID, "album/" + nextId++);
+            client.getTextureManager().registerTexture(id, new NativeImageBackedTexture(d.image));
+            resident.put(d.albumKey, id);
+            uploaded.incrementAndGet();
+            evictOverCapacity(client);
+            residentCount = resident.size();
+        }
+    }
+
+    private void evictOverCapacity(MinecraftClient client) {
+        Iterator<Map.Entry<String, Identifier>> it = resident.entrySet().iterator();
+        while (resident.size() > capacity && it.hasNext()) {
+            Map.Entry<String, Identifier> eldest = it.next();
+            it.remove();
+            known.remove(eldest.getKey());
+            client.getTextureManager().destroyTexture(eldest.getValue());   // closes: GL texture + image
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** The texture for {@code albumKey}, or null while it is not resident.  Render thread only. */
+    public Identifier texture(String albumKey) {
+        return albumKey != null ? resident.get(albumKey) : null;
+    }
+
+    /* ── lifecycle ────────────────────────────────────────────────── */
+    /** Frees every texture and decoded image.  Render thread. */
+    public void shutdown(MinecraftClient client) {
+        stopped = true;
+        decoder.shutdownNow();
+        drainReady();
+        for (Identifier id : resident.values()) client.getTextureManager().destroyTexture(id);
+        resident.clear();
+        known.clear();
+        residentCount = 0;
+    }
+
+    private void drainReady() {
+        Decoded d;
+        while ((d = ready.poll()) != null) d.image.close();
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    /** Textures on the GPU. */
+    public int  residentCount() { return residentCount;    }
+    public int  waitingUpload() { return ready.size();     }
+    public long decoded()       { return decoded.get();    }
+    public long failed()        { return failed.get();     }
+    public long uploaded()      { return uploaded.get();   }
+    public long evictions()     { return evictions.get();  }
+}
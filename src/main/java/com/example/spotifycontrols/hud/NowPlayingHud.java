@@ -0,0 +1,91 @@
+package com.example.spotifycontrols.hud;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderTickCounter;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+
+/**
+ * Now-playing overlay in the top-left corner: title, artist and a progress
+ * bar that moves with {@code PlaybackClock} and holds its place while
+ * paused.  Drawn through {@link HudRenderCallback}, so it works in
+ * singleplayer and on servers alike.  When the album-art HUD is on, the
+ * cover sits in the panel.
+ *
+ * The layout lives in {@link NowPlayingPanel}; this class only adapts
+ * {@link DrawContext} and the font to it, through one reusable instance
+ * of each, so a frame allocates nothing.
+ *
+ * On by default; {@code /spotify hud on|off}, or start with
+ * {@code -Dspotifycontrols.hud.nowPlaying=false}.
+ */
+public class NowPlayingHud implements HudRenderCallback {
+
+    private final NowPlayingPanel<OrderedText> panel;
+    private final AlbumArtHud                  art;
+    private final DrawContextCanvas            canvas = new DrawContextCanvas();
+    private volatile boolean                   enabled =
+            Boolean.parseBoolean(System.getProperty("spotifycontrols.hud.nowPlaying", "true"));
+
+    public NowPlayingHud(AlbumArtHud art) {
+        this.art   = art;
+        this.panel = new NowPlayingPanel<>(new TextRendererFonts());
+    }
+
+    /* ── render thread ────────────────────────────────────────────── */
+    @Override
+    public void onHudRender(DrawContext ctx, RenderTickCounter tickCounter) {
+        if (!enabled) return;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.options.hudHidden) return;
+
+        PlaybackSnapshot s = SpotifyControlsMod.getSnapshot();
+        canvas.ctx      = ctx;
+        canvas.snapshot = s;
+        panel.render(canvas, s, SpotifyControlsMod.getPlaybackClock().positionRatio(System.nanoTime()),
+                     art.isEnabled());
+        canvas.ctx      = null;
+    }
+
+    /** {@link DrawContext} as a {@link NowPlayingPanel.Canvas}; re-pointed every frame. */
+    private final class DrawContextCanvas implements NowPlayingPanel.Canvas<OrderedText> {
+        DrawContext      ctx;
+        PlaybackSnapshot snapshot;
+
+        @Override public void fill(int x1, int y1, int x2, int y2, int argb) { ctx.fill(x1, y1, x2, y2, argb); }
+
+        @Override public void text(OrderedText line, int x, int y, int argb) {
+            ctx.drawText(MinecraftClient.getInstance().textRenderer, line, x, y, argb, true);
+        }
+
+        @Override public void cover(int x, int y, int size) {
+            Identifier id = art.cover(snapshot);
+            if (id != null) ctx.drawTexture(id, x, y, 0, 0, size, size, size, size);
+        }
+    }
+
+    /** The game font; only used when the track changes. */
+    private static final class TextRendererFonts implements NowPlayingPanel.Fonts<OrderedText> {
+        @Override public OrderedText line(String text, int maxWidth) {
+            TextRenderer tr = MinecraftClient.getInstance().textRenderer;
+            if (tr.getWidth(text) > maxWidth) text = tr.trimToWidth(text, maxWidth - tr.getWidth("…")) + "…";
+            return Text.literal(text).asOrderedText();
+        }
+
+        @Override public int width(OrderedText line) { return MinecraftClient.getInstance().textRenderer.getWidth(line); }
+        @Override public int lineHeight()            { return MinecraftClient.getInstance().textRenderer.fontHeight; }
+    }
+
+    /* ── settings ─────────────────────────────────────────────────── */
+    public boolean isEnabled()           { return enabled; }
+    public void    setEnabled(boolean on) { enabled = on;  }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long layouts() { return panel.layouts(); }
+}
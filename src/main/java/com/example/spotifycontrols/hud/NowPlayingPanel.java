@@ -0,0 +1,131 @@
+package com.example.spotifycontrols.hud;
+
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+
+import java.util.Objects;
+
+/**
+ * The now-playing overlay, without any Minecraft types: title, artist and
+ * a progress bar in a small panel, with room for the album cover.
+ *
+ * Everything that depends on the track — trimmed text lines, their width,
+ * the panel geometry and the bar colour — is worked out once when a new
+ * snapshot shows a different track, colour or cover setting, and kept in
+ * fields.  A frame then only turns the progress ratio into a bar width and
+ * issues the same handful of draw calls; it allocates nothing.
+ *
+ * {@code T} is the renderer's text type ({@code OrderedText} in game).
+ * Render thread only.
+ */
+public final class NowPlayingPanel<T> {
+
+    /** Turns strings into drawable lines; called on track changes only. */
+    public interface Fonts<T> {
+        /** {@code text} as one line, trimmed with an ellipsis to at most {@code maxWidth}. */
+        T   line(String text, int maxWidth);
+        int width(T line);
+        int lineHeight();
+    }
+
+    /** Where a frame is drawn. */
+    public interface Canvas<T> {
+        void fill(int x1, int y1, int x2, int y2, int argb);
+        void text(T line, int x, int y, int argb);
+        /** Draws the current album cover, if there is one to draw. */
+        void cover(int x, int y, int size);
+    }
+
+    private static final int X = 4, Y = 4;               // top-left corner of the screen
+    private static final int PAD           = 4;
+    private static final int LINE_GAP      = 1;
+    private static final int BAR_GAP       = 3;
+    private static final int BAR_HEIGHT    = 2;
+    private static final int MIN_TEXT_W    = 80;
+    private static final int MAX_TEXT_W    = 150;
+    private static final int BACKGROUND    = 0x90000000;
+    private static final int TITLE_COLOUR  = 0xFFFFFFFF;
+    private static final int ARTIST_COLOUR = 0xFFAAAAAA;
+    private static final int TRACK_COLOUR  = 0xFF404040;
+    private static final int SPOTIFY_GREEN = 0xFF1DB954;
+
+    private final Fonts<T> fonts;
+
+    /* ── cached layout, rebuilt on track / colour / cover change ──── */
+    private PlaybackSnapshot laidOut;                     // the snapshot the layout was last checked against
+    private String           trackKey;
+    private String           colourHex;
+    private boolean          withCover;
+    private T                title, artist;
+    private int              textX, titleY, artistY;
+    private int              barX, barY, barW;
+    private int              coverSize;
+    private int              right, bottom;
+    private int              barColour;
+    private volatile long    layouts;                     // read by the stats
+
+    public NowPlayingPanel(Fonts<T> fonts) { this.fonts = fonts; }
+
+    /* ── per frame ────────────────────────────────────────────────── */
+    /**
+     * Draws the panel for {@code s} with the bar at {@code progress}
+     * (0.0 – 1.0, e.g. from {@code PlaybackClock.positionRatio}; out of
+     * range values are clamped).
+     * Draws nothing when there is no track.
+     */
+    public void render(Canvas<T> canvas, PlaybackSnapshot s, float progress, boolean showCover) {
+        if (!s.hasTrack()) return;
+        if (s != laidOut || showCover != withCover) relayout(s, showCover);
+
+        canvas.fill(X, Y, right, bottom, BACKGROUND);
+        if (withCover) canvas.cover(X + PAD, Y + PAD, coverSize);
+        canvas.text(title,  textX, titleY,  TITLE_COLOUR);
+        canvas.text(artist, textX, artistY, ARTIST_COLOUR);
+
+        canvas.fill(barX, barY, barX + barW, barY + BAR_HEIGHT, TRACK_COLOUR);
+        int filled = (int) (barW * Math.clamp(progress, 0f, 1f));
+        if (filled > 0) canvas.fill(barX, barY, barX + filled, barY + BAR_HEIGHT, barColour);
+    }
+
+    /* ── on change ────────────────────────────────────────────────── */
+    private void relayout(PlaybackSnapshot s, boolean showCover) {
+        laidOut = s;
+        // a new poll of the same track: nothing visible changed
+        if (showCover == withCover && s.trackKey().equals(trackKey)
+                && Objects.equals(s.albumColourHex, colourHex)) return;
+
+        layouts++;
+        trackKey  = s.trackKey();
+        colourHex = s.albumColourHex;
+        withCover = showCover;
+
+        title  = fonts.line(s.trackName, MAX_TEXT_W);
+        artist = fonts.line(s.artists,   MAX_TEXT_W);
+        int textW = Math.clamp(Math.max(fonts.width(title), fonts.width(artist)), MIN_TEXT_W, MAX_TEXT_W);
+        int lineH = fonts.lineHeight();
+        int innerH = 2 * lineH + LINE_GAP + BAR_GAP + BAR_HEIGHT;
+
+        coverSize = showCover ? innerH : 0;
+        textX     = X + PAD + (showCover ? coverSize + PAD : 0);
+        titleY    = Y + PAD;
+        artistY   = titleY + lineH + LINE_GAP;
+        barX      = textX;
+        barY      = artistY + lineH + BAR_GAP;
+        barW      = textW;
+        right     = textX + textW + PAD;
+        bottom    = Y + PAD + innerH + PAD;
+        barColour = parseColour(colourHex);
+    }
+
+    private static int parseColour(String hex) {
+        if (hex == null || hex.length() != 7 || hex.charAt(0) != '#') return SPOTIFY_GREEN;
+        try {
+            return 0xFF000000 | Integer.parseInt(hex, 1, 7, 16);
+        } catch (NumberFormatException e) {
+            return SPOTIFY_GREEN;
+        }
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    /** Times the layout was rebuilt. */
+    public long layouts() { return layouts; }
+}
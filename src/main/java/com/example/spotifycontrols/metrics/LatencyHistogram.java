@@ -0,0 +1,77 @@
+package com.example.spotifycontrols.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram, HDR-style: values are kept in
+ * microseconds, exact below 16 µs and then in 8 linear sub-buckets per
+ * power of two (≤ 12.5 % relative error) up to about 19 hours.
+ *
+ * {@link #record} is a couple of shifts and one atomic increment — no
+ * allocation and no lock — so it can sit on every request path.
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR     = 16;          // values 0–15 µs get a bucket each
+    private static final int SUB_BITS   = 3;           // 8 sub-buckets per power of two
+    private static final int MAX_EXP    = 36;          // 2^36 µs ≈ 19 h
+    private static final int BUCKETS    = LINEAR + (MAX_EXP - 4) * (1 << SUB_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      total  = new AtomicLong();
+    private final AtomicLong      sumUs  = new AtomicLong();
+    private final AtomicLong      maxUs  = new AtomicLong();
+
+    /* ── recording ────────────────────────────────────────────────── */
+    public void record(long nanos) {
+        long us = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(index(us));
+        total.incrementAndGet();
+        sumUs.addAndGet(us);
+        maxUs.accumulateAndGet(us, Math::max);
+    }
+
+    /** Records {@code System.nanoTime() - startNanos}. */
+    public void recordSince(long startNanos) { record(System.nanoTime() - startNanos); }
+
+    static int index(long us) {
+        if (us < LINEAR) return (int) us;
+        int exp = 63 - Long.numberOfLeadingZeros(us);              // ≥ 4
+        if (exp >= MAX_EXP) return BUCKETS - 1;
+        int sub = (int) (us >>> (exp - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + (exp - 4) * (1 << SUB_BITS) + sub;
+    }
+
+    /** Upper bound, in µs, of the values counted in bucket {@code i}. */
+    static long upperBound(int i) {
+        if (i < LINEAR) return i;
+        int exp = 4 + (i - LINEAR) / (1 << SUB_BITS);
+        int sub = (i - LINEAR) % (1 << SUB_BITS);
+        return ((long) ((1 << SUB_BITS) + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+
+    /* ── reading ──────────────────────────────────────────────────── */
+    public long count() { return total.get(); }
+
+    public double meanMillis() {
+        long n = total.get();
+        return n == 0 ? 0 : sumUs.get() / 1000.0 / n;
+    }
+
+    public double maxMillis() { return maxUs.get() / 1000.0; }
+
+    /** The value at quantile {@code q} (0–1) in milliseconds, to bucket precision. */
+    public double percentileMillis(double q) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), maxUs.get()) / 1000.0;
+        }
+        return maxMillis();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.spotifycontrols.metrics;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named latency histograms, counters and gauges for the whole mod.
+ *
+ * Histograms and counters are created on first use and then only
+ * incremented — callers on hot paths should look them up once and keep
+ * the reference.  Gauges are read lazily, when a summary or dump is made.
+ * Everything is safe to update from any thread.
+ *
+ * {@link #dump} writes one JSON file per call to
+ * {@code config/spotifycontrols/}, so runs under different builds or
+ * network conditions can be compared side by side.
+ */
+public class MetricsRegistry {
+
+    public static final Path   DUMP_DIR      = Path.of("config", "spotifycontrols");
+    public static final String THREAD_PREFIX = "SpotifyControls-";
+
+    private final Map<String, LatencyHistogram>  histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder>         counters   = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<Number>>  gauges     = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<String>>  infos      = new ConcurrentHashMap<>();
+    private final long                           startedAt  = System.nanoTime();
+
+    /* ── registration ─────────────────────────────────────────────── */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public void increment(String name) { counter(name).increment(); }
+
+    public void gauge(String name, Supplier<Number> value) { gauges.put(name, value); }
+
+    /** A short piece of state that is not a number, e.g. why polling runs at its current rate. */
+    public void info(String name, Supplier<String> value) { infos.put(name, value); }
+
+    /* ── reading ──────────────────────────────────────────────────── */
+    /** Threads the mod owns right now (named {@code SpotifyControls-*}). */
+    public static int liveModThreads() {
+        int n = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet())
+            if (t.isAlive() && t.getName().startsWith(THREAD_PREFIX)) n++;
+        return n;
+    }
+
+    /** A few short lines for chat: info, latency per endpoint, then counters, then gauges. */
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(infos).forEach((name, v) -> lines.add(name + ": " + v.get()));
+        new TreeMap<>(histograms).forEach((name, h) -> {
+            if (h.count() == 0) return;
+            lines.add(String.format(Locale.ROOT, "%s  n=%d  p50=%.0fms  p95=%.0fms  max=%.0fms",
+                    name, h.count(), h.percentileMillis(0.50), h.percentileMillis(0.95), h.maxMillis()));
+        });
+
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(counters).forEach((name, c) ->
+                sb.append(sb.length() > 0 ? "  " : "").append(name).append('=').append(c.sum()));
+        if (sb.length() > 0) lines.add(sb.toString());
+
+        sb.setLength(0);
+        new TreeMap<>(gauges).forEach((name, g) ->
+                sb.append(sb.length() > 0 ? "  " : "").append(name).append('=').append(format(g.get())));
+        sb.append(sb.length() > 0 ? "  " : "").append("threads=").append(liveModThreads());
+        lines.add(sb.toString());
+        return lines;
+    }
+
+    private static String format(Number n) {
+        return n instanceof Double || n instanceof Float
+                ? String.format(Locale.ROOT, "%.2f", n.doubleValue())
+                : String.valueOf(n);
+    }
+
+    /* ── JSON dump ────────────────────────────────────────────────── */
+    /** Writes a timestamped JSON snapshot to {@link #DUMP_DIR} and returns its path. */
+    public Path dump() throws IOException {
+        Files.createDirectories(DUMP_DIR);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = DUMP_DIR.resolve("metrics-" + stamp + ".json");
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeJson(w);
+        }
+        return file;
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.setIndent("  ");
+        w.beginObject();
+        w.name("uptimeMs").value((System.nanoTime() - startedAt) / 1_000_000);
+        w.name("jvmThreads").value(ManagementFactory.getThreadMXBean().getThreadCount());
+        w.name("modThreads").value(liveModThreads());
+
+        w.name("info").beginObject();
+        for (Map.Entry<String, Supplier<String>> e : new TreeMap<>(infos).entrySet())
+            w.name(e.getKey()).value(e.getValue().get());
+        w.endObject();
+
+        w.name("latency").beginObject();
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            w.name(e.getKey()).beginObject();
+            w.name("count").value(h.count());
+            w.name("meanMs").value(h.meanMillis());
+            w.name("p50Ms").value(h.percentileMillis(0.50));
+            w.name("p90Ms").value(h.percentileMillis(0.90));
+            w.name("p99Ms").value(h.percentileMillis(0.99));
+            w.name("maxMs").value(h.maxMillis());
+            w.endObject();
+        }
+        w.endObject();
+
+        w.name("counters").beginObject();
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet())
+            w.name(e.getKey()).value(e.getValue().sum());
+        w.endObject();
+
+        w.name("gauges").beginObject();
+        for (Map.Entry<String, Supplier<Number>> e : new TreeMap<>(gauges).entrySet())
+            w.name(e.getKey()).value(e.getValue().get());
+        w.endObject();
+
+        w.endObject();
+        w.flush();
+    }
+}
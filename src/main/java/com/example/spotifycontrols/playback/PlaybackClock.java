@@ -0,0 +1,141 @@
+package com.example.spotifycontrols.playback;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local model of the Spotify playback position.
+ *
+ * Each poll hands in one authoritative sample ({@code progress_ms},
+ * {@code duration_ms}, {@code is_playing} and the local time the response
+ * describes).  Between samples the position is extrapolated from the
+ * monotonic clock, so the progress bar can move every tick without any
+ * extra requests.
+ *
+ * The clock also says when a new sample is needed: when the current
+ * track is {@link #trackEndNanos() predicted to end}, or once the
+ * {@link #safetyIntervalNanos() safety interval} has elapsed — 30 s
+ * normally, shortened while recent predictions have been wrong (seek on
+ * another device, buffering) and relaxed again once they agree.
+ * {@link PollPolicy} turns that into the actual poll schedule.
+ *
+ * All times are {@link System#nanoTime()} values.  Thread-safe: the poller
+ * thread writes, the client thread reads.
+ */
+public class PlaybackClock {
+
+    public  static final long SAFETY_INTERVAL_NANOS     = TimeUnit.SECONDS.toNanos(30);
+    private static final long MIN_SAFETY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(8);
+    private static final long DRIFT_TOLERANCE_MS        = 1500;
+
+    /** One authoritative observation.  Immutable so readers never see a torn state. */
+    private record Sample(String trackKey, long progressMs, long durationMs,
+                          boolean playing, long sampledAtNanos) {
+
+        long predictMs(long nowNanos) {
+            if (!playing) return progressMs;
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(nowNanos - sampledAtNanos);
+            return Math.min(durationMs, progressMs + Math.max(0, elapsedMs));
+        }
+
+        long endsAtNanos() {
+            return sampledAtNanos + TimeUnit.MILLISECONDS.toNanos(durationMs - progressMs);
+        }
+    }
+
+    private volatile Sample sample;                     // null = nothing playing
+    private volatile long   safetyIntervalNanos = SAFETY_INTERVAL_NANOS;
+
+    private final AtomicLong syncs       = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+    private volatile long    lastDriftMs;
+
+    /* ── authoritative updates (poller thread) ────────────────────── */
+    /** Adopts a fresh sample and adjusts the safety interval to how well the last one predicted it. */
+    public void sync(String trackKey, long progressMs, long durationMs,
+                     boolean playing, long sampledAtNanos) {
+        Sample prev = sample;
+        Sample next = new Sample(trackKey, progressMs, Math.max(1, durationMs), playing, sampledAtNanos);
+        syncs.incrementAndGet();
+
+        // self-correction: compare what we predicted with what Spotify says
+        if (prev != null && prev.trackKey.equals(trackKey) && prev.playing == playing) {
+            lastDriftMs = progressMs - prev.predictMs(sampledAtNanos);
+            if (Math.abs(lastDriftMs) > DRIFT_TOLERANCE_MS) {
+                corrections.incrementAndGet();
+                safetyIntervalNanos = Math.max(MIN_SAFETY_INTERVAL_NANOS, safetyIntervalNanos / 2);
+            } else {
+                safetyIntervalNanos = Math.min(SAFETY_INTERVAL_NANOS, safetyIntervalNanos * 2);
+            }
+        }
+
+        sample = next;
+    }
+
+    /** Spotify reported that nothing is playing. */
+    public void clear() {
+        sample = null;
+    }
+
+    /* ── local hints (any thread) ─────────────────────────────────── */
+    /** Optimistic: playback continues from where it was paused. */
+    public void resume(long nowNanos) {
+        Sample s = sample;
+        if (s != null && !s.playing)
+            sample = new Sample(s.trackKey, s.progressMs, s.durationMs, true, nowNanos);
+    }
+
+    /**
+     * Optimistic: a track starts from zero, e.g. after skip / previous.
+     * The track key is cleared so the next sample is not judged as drift.
+     */
+    public void restart(long nowNanos) {
+        Sample s = sample;
+        if (s != null) sample = new Sample("", 0, s.durationMs, true, nowNanos);
+    }
+
+    /** Freezes the prediction immediately, e.g. after {@code /spotify pause}. */
+    public void pause(long nowNanos) {
+        Sample s = sample;
+        if (s != null && s.playing)
+            sample = new Sample(s.trackKey, s.predictMs(nowNanos), s.durationMs, false, nowNanos);
+    }
+
+    /* ── predictions (client thread) ──────────────────────────────── */
+    /** When the current track is predicted to end, or {@link Long#MAX_VALUE} when not playing. */
+    public long trackEndNanos() {
+        Sample s = sample;
+        return s != null && s.playing ? s.endsAtNanos() : Long.MAX_VALUE;
+    }
+
+    /** How long a sample is trusted before it is checked again. */
+    public long safetyIntervalNanos() { return safetyIntervalNanos; }
+
+    /** Predicted position in ms, or -1 when nothing is playing. */
+    public long progressMs(long nowNanos) {
+        Sample s = sample;
+        return s != null ? s.predictMs(nowNanos) : -1;
+    }
+
+    /**
+     * Predicted progress 0.0 – 1.0, or -1 when nothing is playing or paused.
+     * The -1 is the XP bar's cue to restore the real XP; displays that
+     * should keep showing a paused position use {@link #positionRatio}.
+     */
+    public float progressRatio(long nowNanos) {
+        Sample s = sample;
+        if (s == null || !s.playing) return -1f;
+        return (float) s.predictMs(nowNanos) / s.durationMs;
+    }
+
+    /** Predicted position 0.0 – 1.0, held while paused; -1 when there is no sample. */
+    public float positionRatio(long nowNanos) {
+        Sample s = sample;
+        return s != null ? (float) s.predictMs(nowNanos) / s.durationMs : -1f;
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long syncCount()       { return syncs.get();       }
+    public long correctionCount() { return corrections.get(); }
+    public long lastDriftMs()     { return lastDriftMs;       }
+}
@@ -0,0 +1,78 @@
+package com.example.spotifycontrols.playback;
+
+/**
+ * Everything one {@code GET /me/player} tells us, frozen at the moment it
+ * was sampled.
+ *
+ * Instances are immutable and published whole through a single volatile
+ * reference, so a reader on the render thread always sees the track,
+ * progress, device and settings of the same poll — never a mix of two.
+ * Optimistic, not-yet-confirmed changes live in {@link PlaybackState};
+ * interpolated progress comes from {@link PlaybackClock}.
+ */
+public final class PlaybackSnapshot {
+
+    /** No active device, or not logged in. */
+    public static final PlaybackSnapshot NONE = new PlaybackSnapshot(
+            null, null, "Unknown", null, null, 1, 0, false,
+            null, null, -1, false, "off", 0L, null);
+
+    /* ── track (null name when nothing plays, or during an ad) ───── */
+    public final String  trackId;
+    public final String  trackName;
+    public final String  artists;          // "A, B"
+    public final String  albumId;
+    public final String  albumImageUrl;    // album-art URL closest above 64 px (the 64×64 one) or null
+    public final long    durationMs;
+    public final long    progressMs;       // at sampledAtNanos
+    public final boolean playing;
+
+    /* ── device & settings ────────────────────────────────────────── */
+    public final String  deviceId;
+    public final String  deviceName;
+    public final int     volumePercent;    // 0–100, or -1 when the device doesn't report it
+    public final boolean shuffle;
+    public final String  repeat;           // off | track | context
+
+    public final long    sampledAtNanos;   // System.nanoTime() the progress refers to
+    public final String  albumColourHex;   // "#RRGGBB" or null → green, resolved after the fetch
+
+    public PlaybackSnapshot(String trackId, String trackName, String artists, String albumId,
+                            String albumImageUrl, long durationMs, long progressMs, boolean playing,
+                            String deviceId, String deviceName, int volumePercent, boolean shuffle,
+                            String repeat, long sampledAtNanos, String albumColourHex) {
+        this.trackId        = trackId;
+        this.trackName      = trackName;
+        this.artists        = artists;
+        this.albumId        = albumId;
+        this.albumImageUrl  = albumImageUrl;
+        this.durationMs     = Math.max(1, durationMs);
+        this.progressMs     = progressMs;
+        this.playing        = playing;
+        this.deviceId       = deviceId;
+        this.deviceName     = deviceName;
+        this.volumePercent  = volumePercent;
+        this.shuffle        = shuffle;
+        this.repeat         = repeat;
+        this.sampledAtNanos = sampledAtNanos;
+        this.albumColourHex = albumColourHex;
+    }
+
+    public boolean hasTrack() { return trackName != null; }
+
+    /** "Song - Artist", or null when there is no track. */
+    public String displayName() { return hasTrack() ? trackName + " - " + artists : null; }
+
+    /** Identifies the track for change detection: the Spotify id, or the display name for local files. */
+    public String trackKey() { return trackId != null ? trackId : displayName(); }
+
+    /** Progress at sample time, 0.0 – 1.0. */
+    public float progressRatio() { return (float) progressMs / durationMs; }
+
+    /** This snapshot with the album colour filled in. */
+    public PlaybackSnapshot withAlbumColour(String hex) {
+        return new PlaybackSnapshot(trackId, trackName, artists, albumId, albumImageUrl, durationMs,
+                progressMs, playing, deviceId, deviceName, volumePercent, shuffle, repeat,
+                sampledAtNanos, hex);
+    }
+}
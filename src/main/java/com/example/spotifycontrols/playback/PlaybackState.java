@@ -0,0 +1,164 @@
+package com.example.spotifycontrols.playback;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+
+/**
+ * Local, optimistic view of the player state.
+ *
+ * A command applies its expected result here the moment it is issued, so
+ * the HUD reacts within a frame instead of after the next poll.  The
+ * field is then <em>pending</em> until an authoritative poll confirms it:
+ * <ul>
+ *   <li>samples taken before Spotify acknowledged the command are ignored
+ *       (they describe the world before the change);</li>
+ *   <li>the first later sample either matches — the value is confirmed — or
+ *       doesn't, and the field rolls back to what Spotify reports;</li>
+ *   <li>a command that fails is cancelled and rolls back immediately.</li>
+ * </ul>
+ * Each field's state is one immutable value swapped atomically, so
+ * readers on the render thread never see half an update.
+ */
+public class PlaybackState {
+
+    private static final long PENDING_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final Field<Boolean> playing = new Field<>(false, Objects::equals);
+    private final Field<Integer> volume  = new Field<>(-1,    Objects::equals);
+    private final Field<String>  repeat  = new Field<>("off", Objects::equals);
+    /** Expected value is the track we are leaving; any other track confirms it. */
+    private final Field<String>  track   = new Field<>("",    (leaving, now) -> !leaving.equals(now));
+
+    private final AtomicLong confirmed  = new AtomicLong();
+    private final AtomicLong rolledBack = new AtomicLong();
+
+    /* ── reads (any thread) ───────────────────────────────────────── */
+    public boolean playing()              { return playing.get(); }
+    /** Volume 0–100, or -1 while unknown. */
+    public int     volume()               { return volume.get();  }
+    public String  repeat()               { return repeat.get();  }
+    public boolean isTrackChangePending() { return track.isPending(); }
+
+    /* ── optimistic updates (client thread, when a command is issued) ─ */
+    public Pending expectPlaying(boolean p)  { return playing.expect(p);                }
+    public Pending expectVolume(int pct)     { return volume.expect(pct);               }
+    public Pending expectRepeat(String mode) { return repeat.expect(mode);              }
+    public Pending expectTrackChange()       { return track.expect(track.confirmed());  }
+
+    /* ── authoritative updates (poller thread) ────────────────────── */
+    /**
+     * Feeds one poll result through every field.  {@code null} means the
+     * endpoint does not report that field; it then stays optimistic until
+     * it times out and is accepted as-is.
+     */
+    public void reconcile(String trackKey, Boolean isPlaying, Integer volumePct, String repeatMode,
+                          long sampledAtNanos) {
+        long now = System.nanoTime();
+        track.reconcile(trackKey, sampledAtNanos, now);
+        playing.reconcile(isPlaying, sampledAtNanos, now);
+        volume.reconcile(volumePct, sampledAtNanos, now);
+        repeat.reconcile(repeatMode, sampledAtNanos, now);
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long confirmedCount()  { return confirmed.get();  }
+    public long rolledBackCount() { return rolledBack.get(); }
+
+    /* ════════════════════════════════════════════════════════════════ */
+    /** Handle a command keeps so it can acknowledge or cancel its optimistic value. */
+    public interface Pending {
+        /** The command reached Spotify; samples from now on can judge it. */
+        void ack();
+        /** The command failed; roll the optimistic value back. */
+        void cancel();
+
+        /** Nothing optimistic to track. */
+        Pending NONE = new Pending() {
+            @Override public void ack()    {}
+            @Override public void cancel() {}
+        };
+
+        /** Acks / cancels both handles together. */
+        default Pending and(Pending other) {
+            Pending self = this;
+            return new Pending() {
+                @Override public void ack()    { self.ack();    other.ack();    }
+                @Override public void cancel() { self.cancel(); other.cancel(); }
+            };
+        }
+    }
+
+    private final class Field<T> {
+
+        private record Value<T>(T confirmed, T expected, long generation,
+                                long pendingSince, long ackedAt) {
+            boolean pending() { return pendingSince != 0; }
+        }
+
+        private final AtomicReference<Value<T>> ref;
+        private final BiPredicate<T, T>         matches;     // (expected, authoritative)
+
+        Field(T initial, BiPredicate<T, T> matches) {
+            this.ref     = new AtomicReference<>(new Value<>(initial, null, 0, 0, 0));
+            this.matches = matches;
+        }
+
+        T get() {
+            Value<T> v = ref.get();
+            return v.pending() ? v.expected : v.confirmed;
+        }
+
+        T       confirmed() { return ref.get().confirmed; }
+        boolean isPending() { return ref.get().pending(); }
+
+        Pending expect(T value) {
+            long now = System.nanoTime();
+            Value<T> v = ref.updateAndGet(old ->
+                    new Value<>(old.confirmed, value, old.generation + 1, now, 0));
+            long gen = v.generation;
+            return new Pending() {
+                @Override public void ack() {
+                    long at = System.nanoTime();
+                    ref.updateAndGet(old -> old.generation == gen && old.pending()
+                            ? new Value<>(old.confirmed, old.expected, gen, old.pendingSince, at)
+                            : old);
+                }
+                @Override public void cancel() {
+                    Value<T> prev = ref.getAndUpdate(old -> old.generation == gen && old.pending()
+                            ? new Value<>(old.confirmed, null, gen, 0, 0)
+                            : old);
+                    if (prev.generation == gen && prev.pending()) rolledBack.incrementAndGet();
+                }
+            };
+        }
+
+        void reconcile(T authoritative, long sampledAtNanos, long now) {
+            while (true) {
+                Value<T>   v = ref.get();
+                Value<T>   next;
+                AtomicLong outcome = null;
+                if (!v.pending()) {
+                    if (authoritative == null || authoritative.equals(v.confirmed)) return;
+                    next = new Value<>(authoritative, null, v.generation, 0, 0);
+                } else if (v.ackedAt != 0 && sampledAtNanos - v.ackedAt > 0 && authoritative != null) {
+                    outcome = matches.test(v.expected, authoritative) ? confirmed : rolledBack;
+                    next    = new Value<>(authoritative, null, v.generation, 0, 0);
+                } else if (now - v.pendingSince > PENDING_TIMEOUT_NANOS) {
+                    // never judged: trust Spotify if it told us anything, else our own guess
+                    T settled = authoritative != null ? authoritative
+                              : v.ackedAt != 0 ? v.expected : v.confirmed;
+                    next = new Value<>(settled, null, v.generation, 0, 0);
+                } else {
+                    return;                                  // sample predates the command
+                }
+                if (ref.compareAndSet(v, next)) {
+                    if (outcome != null) outcome.incrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.spotifycontrols.playback;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when the next {@code /me/player} poll is due, and why.
+ *
+ * While a track plays the next poll is planned from the
+ * {@link PlaybackClock}: just after the predicted end of the track, or
+ * after the clock's safety interval, whichever comes first.  A command
+ * pulls it forward to {@code delay} after the command.  Anything that
+ * means "nothing is changing" backs off exponentially:
+ * <ul>
+ *   <li>paused or nothing playing — 5 s, doubling up to 60 s, until a
+ *       poll sees playback or a command is sent;</li>
+ *   <li>a failed or rate-limited poll — 5 s, doubling up to 2 min,
+ *       until a poll succeeds.</li>
+ * </ul>
+ *
+ * What the player is doing is passed in on every tick as a
+ * {@link Presence}.  In the background (window unfocused, game menu, title
+ * screen) only track ends, commands and retries keep their timing; safety,
+ * paused and idle polls wait at least 60 s.  Minimized or AFK suspends
+ * polling altogether, and coming back polls at once.
+ *
+ * All times are {@link System#nanoTime()} values.  The poll chain reports
+ * outcomes (one poll at a time), commands may call {@link #requestResync}
+ * from any thread, and the client thread asks {@link #isPollDue}.
+ */
+public class PollPolicy {
+
+    /** What the player is doing, as seen by the client thread. */
+    public enum Presence { ACTIVE, BACKGROUND, MINIMIZED, AFK }
+
+    /** Why the next poll is planned when it is. */
+    public enum Reason {
+        STARTUP, RESUMED, COMMAND, TRACK_END, SAFETY, PAUSED, IDLE, RETRY, RATE_LIMITED,
+        BACKGROUND, MINIMIZED, AFK;
+
+        public String label() { return name().toLowerCase(Locale.ROOT).replace('_', ' '); }
+    }
+
+    private static final long MIN_INTERVAL_NANOS     = TimeUnit.SECONDS.toNanos(2);
+    private static final long END_GRACE_NANOS        = TimeUnit.MILLISECONDS.toNanos(400);
+    private static final long QUIET_MIN_NANOS        = TimeUnit.SECONDS.toNanos(5);
+    private static final long QUIET_MAX_NANOS        = TimeUnit.SECONDS.toNanos(60);
+    private static final long RETRY_MIN_NANOS        = TimeUnit.SECONDS.toNanos(5);
+    private static final long RETRY_MAX_NANOS        = TimeUnit.MINUTES.toNanos(2);
+    private static final long BACKGROUND_MIN_NANOS   = TimeUnit.SECONDS.toNanos(60);
+
+    private volatile long     nextPollNanos  = System.nanoTime();   // first tick polls
+    private volatile long     plannedAtNanos = System.nanoTime();
+    private volatile Reason   reason         = Reason.STARTUP;
+    private volatile Presence presence       = Presence.ACTIVE;     // written by the client thread only
+
+    private long quietDelayNanos;                                   // guarded by this
+    private long retryDelayNanos;                                   // guarded by this
+
+    private final AtomicLong suspendedTicks = new AtomicLong();
+
+    /* ── client thread ────────────────────────────────────────────── */
+    /** True once the planned poll is due, given what the player is doing now. */
+    public boolean isPollDue(long nowNanos, Presence now) {
+        Presence was = presence;
+        if (now != was) {
+            presence = now;
+            if (suspends(was) && !suspends(now)) plan(nowNanos, 0, Reason.RESUMED);   // back — catch up at once
+        }
+        if (suspends(now)) {
+            suspendedTicks.incrementAndGet();
+            return false;
+        }
+        return nowNanos - effectiveDueNanos(now) >= 0;
+    }
+
+    private static boolean suspends(Presence p) { return p == Presence.MINIMIZED || p == Presence.AFK; }
+
+    private static boolean relaxed(Reason r) {
+        return r == Reason.SAFETY || r == Reason.PAUSED || r == Reason.IDLE;
+    }
+
+    private long effectiveDueNanos(Presence p) {
+        long due = nextPollNanos;
+        if (p == Presence.BACKGROUND && relaxed(reason))
+            due = Math.max(due, plannedAtNanos + BACKGROUND_MIN_NANOS);
+        return due;
+    }
+
+    /* ── poll outcomes (poll chain) ───────────────────────────────── */
+    /** A poll is about to be sent; if it never reports back, try again after the retry delay. */
+    public synchronized void onPollStarted(long nowNanos) {
+        nextPollNanos = nowNanos + Math.max(RETRY_MIN_NANOS, retryDelayNanos);
+    }
+
+    /** A track sample was adopted by {@code clock}; plans around its end and the safety interval. */
+    public synchronized void onSample(PlaybackClock clock, long sampledAtNanos) {
+        retryDelayNanos = 0;
+        long trackEnd = clock.trackEndNanos();
+        if (trackEnd == Long.MAX_VALUE) {                           // paused
+            quiet(sampledAtNanos, Reason.PAUSED);
+            return;
+        }
+        quietDelayNanos = 0;
+        long safety = sampledAtNanos + clock.safetyIntervalNanos();
+        long end    = trackEnd + END_GRACE_NANOS;
+        long due    = Math.max(Math.min(safety, end), sampledAtNanos + MIN_INTERVAL_NANOS);
+        plan(sampledAtNanos, due - sampledAtNanos, end - safety < 0 ? Reason.TRACK_END : Reason.SAFETY);
+    }
+
+    /** Spotify reported that nothing is playing. */
+    public synchronized void onIdle(long nowNanos) {
+        retryDelayNanos = 0;
+        quiet(nowNanos, Reason.IDLE);
+    }
+
+    /** The poll failed; {@code rateLimited} when it was shed or answered 429. */
+    public synchronized void onFailed(long nowNanos, boolean rateLimited) {
+        retryDelayNanos = retryDelayNanos == 0 ? RETRY_MIN_NANOS : Math.min(RETRY_MAX_NANOS, retryDelayNanos * 2);
+        plan(nowNanos, retryDelayNanos, rateLimited ? Reason.RATE_LIMITED : Reason.RETRY);
+    }
+
+    private void quiet(long nowNanos, Reason why) {
+        quietDelayNanos = quietDelayNanos == 0 ? QUIET_MIN_NANOS : Math.min(QUIET_MAX_NANOS, quietDelayNanos * 2);
+        plan(nowNanos, quietDelayNanos, why);
+    }
+
+    /* ── local hints (any thread) ─────────────────────────────────── */
+    /**
+     * Brings the next poll forward, e.g. after a user command.  The delay
+     * gives Spotify a moment to apply the change before we read it back.
+     * Ends any idle / paused backoff.
+     */
+    public synchronized void requestResync(long nowNanos, long delayNanos) {
+        quietDelayNanos = 0;
+        if (nowNanos + delayNanos - nextPollNanos < 0) plan(nowNanos, delayNanos, Reason.COMMAND);
+    }
+
+    private synchronized void plan(long fromNanos, long delayNanos, Reason why) {
+        plannedAtNanos = fromNanos;
+        nextPollNanos  = fromNanos + delayNanos;
+        reason         = why;
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    /** Why the next poll is when it is, including suspension and background stretching. */
+    public Reason reason() {
+        Presence p = presence;
+        if (p == Presence.MINIMIZED) return Reason.MINIMIZED;
+        if (p == Presence.AFK)       return Reason.AFK;
+        Reason r = reason;
+        return p == Presence.BACKGROUND && relaxed(r) ? Reason.BACKGROUND : r;
+    }
+
+    /** The interval currently planned between polls in ms, or -1 while suspended. */
+    public long intervalMillis() {
+        Presence p = presence;
+        if (suspends(p)) return -1;
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, effectiveDueNanos(p) - plannedAtNanos));
+    }
+
+    /** "every 12.5s (track end)" or "suspended (afk)". */
+    public String describe() {
+        long ms = intervalMillis();
+        return (ms < 0 ? "suspended" : String.format(Locale.ROOT, "every %.1fs", ms / 1000.0))
+                + " (" + reason().label() + ")";
+    }
+
+    /** Ticks on which polling was suspended (minimized or AFK). */
+    public long suspendedTicks() { return suspendedTicks.get(); }
+}
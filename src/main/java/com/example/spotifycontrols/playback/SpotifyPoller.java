@@ -0,0 +1,81 @@
+package com.example.spotifycontrols.playback;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Drives the periodic "what's playing?" check.
+ *
+ * A poll is an asynchronous task: it returns a future and no thread waits
+ * on the network while it runs.  At most one poll is ever in flight.  A
+ * tick that comes due while the previous poll is still outstanding is
+ * skipped instead of queued, so a slow connection can never pile up
+ * requests.  The in-flight flag is cleared when the future completes, and
+ * that completion orders each poll after the one before it.
+ */
+public class SpotifyPoller {
+
+    private final Supplier<CompletableFuture<?>>          task;
+    private final AtomicReference<CompletableFuture<?>>   current   = new AtomicReference<>();
+    private final AtomicBoolean                           inFlight  = new AtomicBoolean(false);
+    private final AtomicLong                              completed = new AtomicLong();
+    private final AtomicLong                              skipped   = new AtomicLong();
+    private volatile boolean                              stopped   = false;
+
+    public SpotifyPoller(Supplier<CompletableFuture<?>> task) {
+        this.task = task;
+    }
+
+    /* ── scheduling ───────────────────────────────────────────────── */
+    /**
+     * Starts a poll unless one is already running.
+     *
+     * @return {@code true} if a poll was started, {@code false} if the
+     *         request was skipped because a poll is still in flight or
+     *         the poller has been shut down
+     */
+    public boolean requestPoll() {
+        if (stopped) return false;
+        if (!inFlight.compareAndSet(false, true)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+
+        CompletableFuture<?> f = start();
+        current.set(f);
+        f.whenComplete((v, e) -> {
+            if (e != null && !f.isCancelled())
+                SpotifyControlsMod.LOGGER.error("[SpotifyControls] poll error: " + e.getMessage());
+            current.compareAndSet(f, null);
+            completed.incrementAndGet();
+            inFlight.set(false);
+        });
+        return true;
+    }
+
+    private CompletableFuture<?> start() {
+        try {
+            return task.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /* ── lifecycle ────────────────────────────────────────────────── */
+    /** Stops polling; an in-flight poll is cancelled. */
+    public void shutdown() {
+        stopped = true;
+        CompletableFuture<?> f = current.getAndSet(null);
+        if (f != null) f.cancel(true);
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public boolean isPolling()      { return inFlight.get();  }
+    public long    completedPolls() { return completed.get(); }
+    public long    skippedPolls()   { return skipped.get();   }
+}
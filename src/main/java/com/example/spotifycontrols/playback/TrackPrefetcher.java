@@ -0,0 +1,219 @@
+package com.example.spotifycontrols.playback;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+import com.example.spotifycontrols.spotify.RequestScheduler;
+import com.example.spotifycontrols.spotify.SpotifyAPI;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gets the next track ready before it starts.
+ *
+ * Shortly before the {@link PlaybackClock} predicts the end of the current
+ * track, one {@code GET /me/player/queue} reads what comes next, and the
+ * album art of each upcoming entry is downloaded and analysed.  The result
+ * is staged by track key; when a poll then sees the track change,
+ * {@link #take} hands over its colour and thumbnail at once instead of
+ * starting a download.
+ *
+ * Staging is bounded twice: at most {@code maxEntries} tracks and
+ * {@code maxBytes} of image data are held.  Entries left over from earlier
+ * rounds are evicted first, oldest first; if an image still doesn't fit,
+ * it is not kept (its colour still is), so a round never pushes out the
+ * track that plays next.
+ *
+ * One round runs per current track, at most one at a time.  The lead time
+ * can be set with {@code -Dspotifycontrols.prefetch.leadSeconds=10}.
+ */
+public class TrackPrefetcher {
+
+    public static final int  DEFAULT_MAX_ENTRIES  = 2;
+    public static final int  DEFAULT_MAX_BYTES    = 256 * 1024;
+    public static final long DEFAULT_LEAD_SECONDS = 10;
+
+    /** Colour and, when it is needed, the image of one album; completes normally, with nulls when unavailable. */
+    @FunctionalInterface
+    public interface ArtLoader {
+        CompletableFuture<Art> load(String albumKey, String imageUrl);
+    }
+
+    /** What an {@link ArtLoader} produced. */
+    public static final class Art {
+        public static final Art NONE = new Art(null, null);
+
+        public final String colourHex;    // "#RRGGBB" or null
+        public final byte[] image;        // encoded thumbnail, or null when unavailable or not needed
+
+        public Art(String colourHex, byte[] image) {
+            this.colourHex = colourHex;
+            this.image     = image;
+        }
+    }
+
+    /** One upcoming track, ready to publish. */
+    public static final class Staged {
+        public final SpotifyAPI.QueuedTrack track;
+        public final String                 albumColourHex;   // null → green
+        public final byte[]                 albumImage;       // null when over the byte budget
+        final long                          round;
+
+        Staged(SpotifyAPI.QueuedTrack track, String albumColourHex, byte[] albumImage, long round) {
+            this.track          = track;
+            this.albumColourHex = albumColourHex;
+            this.albumImage     = albumImage;
+            this.round          = round;
+        }
+
+        int bytes() { return albumImage != null ? albumImage.length : 0; }
+    }
+
+    private final SpotifyAPI api;
+    private final ArtLoader  art;
+    private final int        maxEntries;
+    private final int        maxBytes;
+    private final long       leadNanos;
+
+    private final LinkedHashMap<String, Staged> staged = new LinkedHashMap<>();   // guarded by this, oldest first
+    private long                                stagedBytes;                      // guarded by this
+
+    private volatile String                             prefetchedFor;            // client thread writes
+    private final AtomicBoolean                         running = new AtomicBoolean();
+    private final AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+    private volatile boolean                            stopped;
+
+    private final AtomicLong rounds        = new AtomicLong();
+    private final AtomicLong hits          = new AtomicLong();
+    private final AtomicLong misses        = new AtomicLong();
+    private final AtomicLong evicted       = new AtomicLong();
+    private final AtomicLong imagesDropped = new AtomicLong();
+
+    /** Configured from {@code spotifycontrols.prefetch.leadSeconds}. */
+    public TrackPrefetcher(SpotifyAPI api, ArtLoader art) {
+        this(api, art, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, TimeUnit.SECONDS.toNanos(
+                Long.getLong("spotifycontrols.prefetch.leadSeconds", DEFAULT_LEAD_SECONDS)));
+    }
+
+    public TrackPrefetcher(SpotifyAPI api, ArtLoader art, int maxEntries, int maxBytes, long leadNanos) {
+        this.api        = api;
+        this.art        = art;
+        this.maxEntries = maxEntries;
+        this.maxBytes   = maxBytes;
+        this.leadNanos  = leadNanos;
+    }
+
+    /* ── client thread ────────────────────────────────────────────── */
+    /**
+     * Starts a round once {@code currentKey} is within the lead time of its
+     * predicted end, unless one already ran for it.  Cheap when nothing is due.
+     *
+     * @param trackEndNanos {@link PlaybackClock#trackEndNanos()}
+     */
+    public void maybePrefetch(long nowNanos, long trackEndNanos, String currentKey) {
+        if (stopped || currentKey == null || trackEndNanos == Long.MAX_VALUE) return;
+        if (trackEndNanos - nowNanos > leadNanos || currentKey.equals(prefetchedFor)) return;
+        if (!running.compareAndSet(false, true)) return;
+
+        prefetchedFor = currentKey;
+        long round = rounds.incrementAndGet();
+        CompletableFuture<?> f = api.getQueueAsync(maxEntries, RequestScheduler.Priority.BACKGROUND)
+                .thenCompose(upcoming -> stageAll(upcoming, round));
+        current.set(f);
+        f.whenComplete((v, e) -> {
+            current.compareAndSet(f, null);
+            running.set(false);
+            if (e != null && !(SpotifyAPI.unwrap(e) instanceof CancellationException)
+                    && !(SpotifyAPI.unwrap(e) instanceof RequestScheduler.RateLimitedException))
+                SpotifyControlsMod.LOGGER.warn("[SpotifyControls] prefetch: " + SpotifyAPI.unwrap(e).getMessage());
+        });
+    }
+
+    /* ── staging (HTTP workers) ───────────────────────────────────── */
+    private CompletableFuture<Void> stageAll(List<SpotifyAPI.QueuedTrack> upcoming, long round) {
+        List<CompletableFuture<Void>> loads = new ArrayList<>(upcoming.size());
+        for (SpotifyAPI.QueuedTrack track : upcoming) {
+            String key = track.trackKey();
+            synchronized (this) {
+                if (staged.containsKey(key)) continue;
+            }
+            if (track.albumImageUrl == null) {
+                stage(key, track, Art.NONE, round);
+                continue;
+            }
+            String albumKey = track.albumId != null ? track.albumId : track.albumImageUrl;
+            loads.add(art.load(albumKey, track.albumImageUrl).thenAccept(a -> stage(key, track, a, round)));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private synchronized void stage(String key, SpotifyAPI.QueuedTrack track, Art a, long round) {
+        if (stopped) return;
+        Staged old = staged.remove(key);
+        if (old != null) stagedBytes -= old.bytes();
+
+        // make room by evicting what earlier rounds left, oldest first
+        int size = a.image != null ? a.image.length : 0;
+        Iterator<Map.Entry<String, Staged>> it = staged.entrySet().iterator();
+        while (it.hasNext() && (staged.size() >= maxEntries || stagedBytes + size > maxBytes)) {
+            Staged s = it.next().getValue();
+            if (s.round == round) continue;
+            stagedBytes -= s.bytes();
+            it.remove();
+            evicted.incrementAndGet();
+        }
+
+        byte[] image = a.image;
+        if (image != null && stagedBytes + size > maxBytes) {
+            imagesDropped.incrementAndGet();
+            image = null;
+        }
+        Staged s = new Staged(track, a.colourHex, image, round);
+        staged.put(key, s);
+        stagedBytes += s.bytes();
+    }
+
+    /* ── consumer (poll chain) ────────────────────────────────────── */
+    /** Removes and returns what was staged for {@code trackKey}, or null; counted as a hit or miss. */
+    public synchronized Staged take(String trackKey) {
+        Staged s = staged.remove(trackKey);
+        if (s == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        stagedBytes -= s.bytes();
+        hits.incrementAndGet();
+        return s;
+    }
+
+    /* ── lifecycle ────────────────────────────────────────────────── */
+    /** Cancels a running round and drops everything staged. */
+    public void shutdown() {
+        stopped = true;
+        CompletableFuture<?> f = current.getAndSet(null);
+        if (f != null) f.cancel(true);
+        synchronized (this) {
+            staged.clear();
+            stagedBytes = 0;
+        }
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public synchronized int  stagedEntries() { return staged.size(); }
+    public synchronized long stagedBytes()   { return stagedBytes;   }
+    public long rounds()        { return rounds.get();        }
+    /** Track changes that found the new track staged. */
+    public long hits()          { return hits.get();          }
+    public long misses()        { return misses.get();        }
+    public long evicted()       { return evicted.get();       }
+    /** Images not kept because they did not fit the byte budget. */
+    public long imagesDropped() { return imagesDropped.get(); }
+}
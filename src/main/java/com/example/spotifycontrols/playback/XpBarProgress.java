@@ -0,0 +1,54 @@
+package com.example.spotifycontrols.playback;
+
+/**
+ * The XP-bar hack, without any Minecraft types: shows song progress on a
+ * {@link Bar} and gives the player's real XP back when playback stops.
+ *
+ * The real values are saved once, the first time the bar is taken over,
+ * and restored exactly once.  Client thread only.
+ */
+public final class XpBarProgress {
+
+    /** The two XP fields of the local player. */
+    public interface Bar {
+        float progress();
+        int   level();
+        void  set(float progress, int level);
+    }
+
+    private float   savedProgress = 0f;
+    private int     savedLevel    = 0;
+    private boolean saved         = false;
+
+    /**
+     * One tick.
+     *
+     * @param ratio song progress 0.0 – 1.0, or negative when nothing is
+     *              playing (the real XP is then restored)
+     */
+    public void update(Bar bar, float ratio) {
+        if (ratio < 0f) {
+            restore(bar);
+            return;
+        }
+
+        // save the real values once, before we start overwriting
+        if (!saved) {
+            savedProgress = bar.progress();
+            savedLevel    = bar.level();
+            saved         = true;
+        }
+
+        // overwrite with song progress, level hidden
+        bar.set(ratio, 0);
+    }
+
+    /** Restore real XP when music stops / pauses. */
+    public void restore(Bar bar) {
+        if (!saved) return;
+        bar.set(savedProgress, savedLevel);
+        saved = false;
+    }
+
+    public boolean isShowingProgress() { return saved; }
+}
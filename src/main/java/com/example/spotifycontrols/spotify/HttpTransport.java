@@ -0,0 +1,134 @@
+package com.example.spotifycontrols.spotify;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLSession;
+
+/**
+ * The one {@link HttpClient} the mod uses — for the Web API, the token
+ * endpoint and album-art downloads alike — so TLS sessions and pooled
+ * keep-alive connections are shared instead of rebuilt per call.
+ *
+ * HTTP/2 is preferred (Spotify's API and image CDN both speak it, so all
+ * requests to a host multiplex over one connection).  Timeouts and the
+ * size of the client's worker pool can be set with system properties:
+ * <pre>
+ *   -Dspotifycontrols.http.connectTimeoutMs=5000
+ *   -Dspotifycontrols.http.requestTimeoutMs=10000
+ *   -Dspotifycontrols.http.threads=2
+ * </pre>
+ *
+ * Connection reuse is reported by counting distinct TLS sessions seen in
+ * responses: every new session is a full handshake, every other HTTPS
+ * response rode on an existing connection.
+ */
+public class HttpTransport {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    public static final int      DEFAULT_THREADS         = 2;
+
+    private static final int MAX_TRACKED_SESSIONS = 256;
+
+    private final HttpClient      client;
+    private final ExecutorService executor;
+    private final Duration        requestTimeout;
+
+    private final AtomicLong requests   = new AtomicLong();
+    private final AtomicLong secure     = new AtomicLong();
+    private final AtomicLong http2      = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final Map<String, Boolean> sessions = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_TRACKED_SESSIONS;
+        }
+    };
+
+    /** Configured from the {@code spotifycontrols.http.*} system properties. */
+    public HttpTransport() {
+        this(Duration.ofMillis(Long.getLong("spotifycontrols.http.connectTimeoutMs", DEFAULT_CONNECT_TIMEOUT.toMillis())),
+             Duration.ofMillis(Long.getLong("spotifycontrols.http.requestTimeoutMs", DEFAULT_REQUEST_TIMEOUT.toMillis())),
+             Integer.getInteger("spotifycontrols.http.threads", DEFAULT_THREADS));
+    }
+
+    public HttpTransport(Duration connectTimeout, Duration requestTimeout, int threads) {
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "SpotifyControls-Http-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.requestTimeout = requestTimeout;
+    }
+
+    /* ── requests ─────────────────────────────────────────────────── */
+    /** A request builder with the configured per-request timeout already applied. */
+    public HttpRequest.Builder newRequest(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(requestTimeout);
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        HttpResponse<T> resp = client.send(request, handler);
+        record(resp);
+        return resp;
+    }
+
+    /**
+     * Non-blocking send.  Dependent stages run on the transport's worker
+     * pool; cancelling the returned future aborts the exchange.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        CompletableFuture<HttpResponse<T>> f = client.sendAsync(request, handler);
+        f.thenAccept(this::record);
+        return f;
+    }
+
+    private void record(HttpResponse<?> resp) {
+        requests.incrementAndGet();
+        if (resp.version() == HttpClient.Version.HTTP_2) http2.incrementAndGet();
+
+        SSLSession s = resp.sslSession().orElse(null);
+        if (s == null) return;
+        secure.incrementAndGet();
+        // responses get a defensive copy of the session, so identify it by peer + creation time
+        String id = resp.uri().getHost() + '@' + s.getCreationTime();
+        synchronized (sessions) {
+            if (sessions.put(id, Boolean.TRUE) == null) handshakes.incrementAndGet();
+        }
+    }
+
+    /* ── lifecycle ────────────────────────────────────────────────── */
+    public void shutdown() {
+        client.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long requests()      { return requests.get();   }
+    public long http2Requests() { return http2.get();      }
+    public long tlsHandshakes() { return handshakes.get(); }
+
+    /** Share of HTTPS responses that reused an already-established connection, 0.0 – 1.0. */
+    public double connectionReuse() {
+        long s = secure.get();
+        return s == 0 ? 0 : 1.0 - (double) handshakes.get() / s;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.spotifycontrols.spotify;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for Spotify Web API requests.
+ *
+ * Every request first {@link #acquire acquires} a permit.  Permits come
+ * from a client-side token bucket (8 tokens, 2 / s by default), handed out strictly by priority lane:
+ * interactive commands, then polls, then background work (prefetch, album
+ * art).  Lower lanes may only dip into the bucket while it holds a
+ * reserve, so a burst of background work can never starve a command.
+ *
+ * When Spotify answers 429, {@link #onRateLimited} starts a global backoff
+ * that follows {@code Retry-After}.  During a backoff background and poll
+ * requests are shed immediately with {@link RateLimitedException}; only
+ * interactive ones wait it out (if it is short enough).
+ */
+public class RequestScheduler {
+
+    public enum Priority {
+        INTERACTIVE(0, 16),      // (tokens that must remain, max queued)
+        POLL       (2,  2),
+        BACKGROUND (4,  8);
+
+        final int reserve;
+        final int maxQueued;
+
+        Priority(int reserve, int maxQueued) {
+            this.reserve   = reserve;
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    /** Thrown when a request is shed because of the rate limit. */
+    public static class RateLimitedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public RateLimitedException(String message) { super(message); }
+    }
+
+    public static final int    DEFAULT_CAPACITY        = 8;
+    public static final double DEFAULT_TOKENS_PER_SEC  = 2;
+    private static final long  MAX_INTERACTIVE_WAIT    = TimeUnit.SECONDS.toNanos(10);
+
+    private record Waiter(CompletableFuture<Void> permit, long queuedAtNanos) {}
+
+    private final int    capacity;
+    private final double nanosPerToken;
+
+    private final Object lock = new Object();
+    private final List<ArrayDeque<Waiter>> lanes = new ArrayList<>();   // indexed by Priority.ordinal()
+    private double tokens;
+    private long   lastRefillNanos = System.nanoTime();
+    private long   backoffUntilNanos = System.nanoTime();
+    private ScheduledFuture<?> wakeUp;
+
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLong granted        = new AtomicLong();
+    private final AtomicLong shed           = new AtomicLong();
+    private final AtomicLong rateLimited    = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    public RequestScheduler() { this(DEFAULT_CAPACITY, DEFAULT_TOKENS_PER_SEC); }
+
+    /** A bucket of {@code capacity} tokens refilling at {@code tokensPerSecond}; load tests raise both. */
+    public RequestScheduler(int capacity, double tokensPerSecond) {
+        this.capacity      = capacity;
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / tokensPerSecond;
+        this.tokens        = capacity;
+        for (int i = 0; i < Priority.values().length; i++) lanes.add(new ArrayDeque<>());
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SpotifyControls-RateLimiter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /* ── admission ────────────────────────────────────────────────── */
+    /**
+     * Returns a future that completes when the request may be sent, or
+     * fails with {@link RateLimitedException} if it was shed.
+     */
+    public CompletableFuture<Void> acquire(Priority p) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        long now = System.nanoTime();
+        synchronized (lock) {
+            long backoffLeft = backoffUntilNanos - now;
+            if (backoffLeft > 0 && (p != Priority.INTERACTIVE || backoffLeft > MAX_INTERACTIVE_WAIT)) {
+                shed.incrementAndGet();
+                return CompletableFuture.failedFuture(new RateLimitedException(
+                        "Spotify rate limit — retry in " + TimeUnit.NANOSECONDS.toSeconds(backoffLeft + 999_999_999) + "s"));
+            }
+            ArrayDeque<Waiter> lane = lanes.get(p.ordinal());
+            if (lane.size() >= p.maxQueued) {
+                shed.incrementAndGet();
+                return CompletableFuture.failedFuture(new RateLimitedException("Too many queued " + p + " requests"));
+            }
+            lane.addLast(new Waiter(permit, now));
+        }
+        drain();
+        return permit;
+    }
+
+    /** Spotify returned 429: stop sending until {@code retryAfterSeconds} have passed. */
+    public void onRateLimited(long retryAfterSeconds) {
+        rateLimited.incrementAndGet();
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, retryAfterSeconds));
+        List<CompletableFuture<Void>> dropped = new ArrayList<>();
+        synchronized (lock) {
+            if (until - backoffUntilNanos > 0) backoffUntilNanos = until;
+            tokens = 0;
+            // background and poll work already queued is shed, not held
+            for (Priority p : Priority.values()) {
+                if (p == Priority.INTERACTIVE) continue;
+                for (Waiter w : lanes.get(p.ordinal())) dropped.add(w.permit);
+                lanes.get(p.ordinal()).clear();
+            }
+        }
+        SpotifyControlsMod.LOGGER.warn("[SpotifyControls] rate limited — backing off " + retryAfterSeconds + "s");
+        shed.addAndGet(dropped.size());
+        for (CompletableFuture<Void> f : dropped)
+            f.completeExceptionally(new RateLimitedException("Spotify rate limit — request shed"));
+        drain();
+    }
+
+    /* ── dispatch ─────────────────────────────────────────────────── */
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (lock) {
+            refill(now);
+            long wakeAt;
+            if (backoffUntilNanos - now > 0) {
+                wakeAt = backoffUntilNanos;
+            } else {
+                for (Priority p : Priority.values()) {
+                    ArrayDeque<Waiter> lane = lanes.get(p.ordinal());
+                    while (!lane.isEmpty() && tokens >= 1 + p.reserve) {
+                        Waiter w = lane.pollFirst();
+                        if (w.permit.isDone()) continue;       // cancelled while queued — costs nothing
+                        tokens -= 1;
+                        ready.add(w);
+                    }
+                }
+                wakeAt = now + (long) ((1 - (tokens - Math.floor(tokens))) * nanosPerToken);
+            }
+            if (hasWaiters()) scheduleWakeUp(wakeAt - now);
+        }
+        for (Waiter w : ready) {
+            long waited = now - w.queuedAtNanos;
+            if (waited > 0) throttledNanos.addAndGet(waited);
+            granted.incrementAndGet();
+            w.permit.complete(null);
+        }
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed <= 0) return;
+        tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+        lastRefillNanos = now;
+    }
+
+    private boolean hasWaiters() {
+        for (ArrayDeque<Waiter> lane : lanes) if (!lane.isEmpty()) return true;
+        return false;
+    }
+
+    private void scheduleWakeUp(long delayNanos) {
+        if (wakeUp != null) return;                          // one timer is enough — it re-arms itself
+        wakeUp = timer.schedule(this::onWakeUp, Math.max(1, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void onWakeUp() {
+        synchronized (lock) { wakeUp = null; }
+        drain();
+    }
+
+    public void shutdown() { timer.shutdownNow(); }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public int queueDepth(Priority p) { synchronized (lock) { return lanes.get(p.ordinal()).size(); } }
+
+    public int queueDepth() {
+        synchronized (lock) {
+            int n = 0;
+            for (ArrayDeque<Waiter> lane : lanes) n += lane.size();
+            return n;
+        }
+    }
+
+    public long granted()          { return granted.get();     }
+    public long shed()             { return shed.get();        }
+    public long rateLimitedCount() { return rateLimited.get(); }
+
+    /** Total time requests spent waiting for a permit, in milliseconds. */
+    public long throttledMillis()  { return TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()); }
+}
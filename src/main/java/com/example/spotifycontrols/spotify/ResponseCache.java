@@ -0,0 +1,121 @@
+package com.example.spotifycontrols.spotify;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of GET responses used by {@link SpotifyAPI}.
+ *
+ * Entries are keyed by method and path.  Inside the per-endpoint TTL a
+ * cached body is returned without touching the network; after that the
+ * stored {@code ETag} / {@code Last-Modified} validators are sent so an
+ * unchanged resource costs a bodyless 304 instead of a full download.
+ */
+public class ResponseCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    /** One cached body plus its validators.  {@code storedAtNanos} moves on every 304. */
+    public static final class Entry {
+        public final byte[] body;            // raw UTF-8, parsed by SpotifyJson
+        public final String etag;            // may be null
+        public final String lastModified;    // may be null
+        public final long   sampledAtNanos;  // when the body was produced (see SpotifyAPI)
+        volatile long       storedAtNanos;
+
+        Entry(byte[] body, String etag, String lastModified, long sampledAtNanos, long storedAtNanos) {
+            this.body           = body;
+            this.etag           = etag;
+            this.lastModified   = lastModified;
+            this.sampledAtNanos = sampledAtNanos;
+            this.storedAtNanos  = storedAtNanos;
+        }
+
+        boolean hasValidator() { return etag != null || lastModified != null; }
+
+        public boolean isEmpty() { return body.length == 0; }
+
+        public InputStream stream() { return new ByteArrayInputStream(body); }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private final AtomicLong hits        = new AtomicLong();   // answered from memory
+    private final AtomicLong revalidated = new AtomicLong();   // 304 Not Modified
+    private final AtomicLong misses      = new AtomicLong();   // full body downloaded
+    private final AtomicLong bytesSaved  = new AtomicLong();
+
+    /* ── keys & TTLs ──────────────────────────────────────────────── */
+    public static String key(String method, String path) { return method + " " + path; }
+
+    /**
+     * How long a body may be served without asking Spotify.  Playback
+     * state goes stale quickly; search results hardly at all.
+     */
+    static long ttlNanos(String path) {
+        if (path.startsWith("/me/player"))  return TimeUnit.MILLISECONDS.toNanos(1500);
+        if (path.startsWith("/search"))     return TimeUnit.MINUTES.toNanos(5);
+        return 0;
+    }
+
+    /* ── lookup ───────────────────────────────────────────────────── */
+    /** Returns the entry if it is still inside its TTL, counting a hit. */
+    public synchronized Entry fresh(String key, String path, long nowNanos) {
+        Entry e = entries.get(key);
+        if (e == null || nowNanos - e.storedAtNanos >= ttlNanos(path)) return null;
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(e.body.length);
+        return e;
+    }
+
+    /** Returns the (possibly stale) entry so its validators can be sent. */
+    public synchronized Entry validators(String key) {
+        Entry e = entries.get(key);
+        return e != null && e.hasValidator() ? e : null;
+    }
+
+    /* ── updates ──────────────────────────────────────────────────── */
+    /** A 304 came back: the cached body is current again. */
+    public Entry revalidated(Entry e, long nowNanos) {
+        e.storedAtNanos = nowNanos;
+        revalidated.incrementAndGet();
+        bytesSaved.addAndGet(e.body.length);
+        return e;
+    }
+
+    public synchronized Entry store(String key, byte[] body, String etag, String lastModified,
+                                    long sampledAtNanos, long nowNanos) {
+        misses.incrementAndGet();
+        Entry e = new Entry(body, etag, lastModified, sampledAtNanos, nowNanos);
+        entries.put(key, e);
+        return e;
+    }
+
+    /** Drops every entry whose key starts with {@code prefix}, e.g. after a playback command. */
+    public synchronized void invalidate(String prefix) {
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    public synchronized void clear() { entries.clear(); }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long hits()        { return hits.get();        }
+    public long revalidated() { return revalidated.get(); }
+    public long misses()      { return misses.get();      }
+    public long bytesSaved()  { return bytesSaved.get();  }
+
+    /** Share of lookups that avoided a full download, 0.0 – 1.0. */
+    public double hitRatio() {
+        long saved = hits.get() + revalidated.get();
+        long total = saved + misses.get();
+        return total == 0 ? 0 : (double) saved / total;
+    }
+}
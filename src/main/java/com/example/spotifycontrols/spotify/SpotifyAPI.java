@@ -1,170 +1,525 @@
 package com.example.spotifycontrols.spotify;
 
 import com.example.spotifycontrols.SpotifyControlsMod;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.example.spotifycontrols.metrics.MetricsRegistry;
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import com.example.spotifycontrols.spotify.RequestScheduler.Priority;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Spotify Web API client.
+ *
+ * Every call has a non-blocking {@code …Async} form built on
+ * {@link HttpTransport#sendAsync}; the blocking methods are thin wrappers
+ * for callers that already own a thread.  The returned futures
+ * <ul>
+ *   <li>compose — search-and-play is a single chain;</li>
+ *   <li>time out — via the transport's per-request timeout, or any
+ *       {@code orTimeout} the caller adds;</li>
+ *   <li>cancel — cancelling (or timing out) a request's future aborts
+ *       whichever stage it is in: the rate-limit queue, a token refresh
+ *       wait, or the HTTP exchange itself.</li>
+ * </ul>
+ * The 401 refresh-and-retry and the 429 backoff run inside the chain, so
+ * no thread is parked while either happens.
+ *
+ * Reads are single-flight: a caller asking for the same GET while an
+ * identical one is in flight (say {@code /spotify current} during a poll)
+ * joins it and receives the same parsed result instead of sending a
+ * second request.
+ */
 public class SpotifyAPI {
 
-    private static final String BASE = "https://api.spotify.com/v1";
+    public static final String DEFAULT_BASE_URL = "https://api.spotify.com/v1";
+
+    private final String           base;
+    private final TokenRefresher   tokens;
+    private final HttpTransport    http;
+    private final RequestScheduler scheduler;
+    private final MetricsRegistry  metrics;
+    private final ResponseCache    cache = new ResponseCache();
 
-    private final TokenStorage tokenStorage;
-    private final HttpClient   client;
+    private final ConcurrentHashMap<String, SharedRead<?>> reads = new ConcurrentHashMap<>();
+    private final AtomicLong readsSent   = new AtomicLong();
+    private final AtomicLong readsJoined = new AtomicLong();
 
-    public SpotifyAPI(TokenStorage tokenStorage) {
-        this.tokenStorage = tokenStorage;
-        this.client       = HttpClient.newHttpClient();
+    /** Talks to {@code -Dspotifycontrols.api.baseUrl}, or Spotify itself when unset. */
+    public SpotifyAPI(TokenRefresher tokens, HttpTransport http, RequestScheduler scheduler,
+                      MetricsRegistry metrics) {
+        this(System.getProperty("spotifycontrols.api.baseUrl", DEFAULT_BASE_URL), tokens, http, scheduler, metrics);
+    }
+
+    /** @param baseUrl API root including {@code /v1}, e.g. a local stand-in server */
+    public SpotifyAPI(String baseUrl, TokenRefresher tokens, HttpTransport http, RequestScheduler scheduler,
+                      MetricsRegistry metrics) {
+        this.base      = baseUrl;
+        this.tokens    = tokens;
+        this.http      = http;
+        this.scheduler = scheduler;
+        this.metrics   = metrics;
     }
 
     /* ── simple playback commands ───────────────────────────────────── */
-    public void play()     throws IOException, InterruptedException { request("PUT",  "/me/player/play",     null); }
-    public void pause()    throws IOException, InterruptedException { request("PUT",  "/me/player/pause",    null); }
-    public void skip()     throws IOException, InterruptedException { request("POST", "/me/player/next",     null); }
-    public void previous() throws IOException, InterruptedException { request("POST", "/me/player/previous", null); }
+    public CompletableFuture<Void> playAsync()     { return commandAsync("PUT",  "/me/player/play",     null); }
+    public CompletableFuture<Void> pauseAsync()    { return commandAsync("PUT",  "/me/player/pause",    null); }
+    public CompletableFuture<Void> skipAsync()     { return commandAsync("POST", "/me/player/next",     null); }
+    public CompletableFuture<Void> previousAsync() { return commandAsync("POST", "/me/player/previous", null); }
 
-    public void setVolume(int pct) throws IOException, InterruptedException {
-        request("PUT", "/me/player/volume?volume_percent=" + pct, null);
+    public CompletableFuture<Void> setVolumeAsync(int pct) {
+        return commandAsync("PUT", "/me/player/volume?volume_percent=" + pct, null);
     }
 
-    public void setRepeatMode(String mode) throws IOException, InterruptedException {
+    public CompletableFuture<Void> setRepeatModeAsync(String mode) {
         if (!"track".equals(mode) && !"context".equals(mode) && !"off".equals(mode))
-            throw new IllegalArgumentException("Use: track | context | off");
-        request("PUT", "/me/player/repeat?state=" + mode, null);
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Use: track | context | off"));
+        return commandAsync("PUT", "/me/player/repeat?state=" + mode, null);
     }
 
+    public void play()     throws IOException, InterruptedException { await(playAsync());     }
+    public void pause()    throws IOException, InterruptedException { await(pauseAsync());    }
+    public void skip()     throws IOException, InterruptedException { await(skipAsync());     }
+    public void previous() throws IOException, InterruptedException { await(previousAsync()); }
+
+    public void setVolume(int pct)         throws IOException, InterruptedException { await(setVolumeAsync(pct));      }
+    public void setRepeatMode(String mode) throws IOException, InterruptedException { await(setRepeatModeAsync(mode)); }
+
     /* ── search + play ──────────────────────────────────────────────── */
-    public String searchAndPlay(String query) throws IOException, InterruptedException {
+    /** One track hit from {@code /search}. */
+    public static class SearchResult {
+        public final String uri;        // spotify:track:…
+        public final String name;
+        public final String artists;    // "A, B"
+
+        public SearchResult(String uri, String name, String artists) {
+            this.uri     = uri;
+            this.name    = name;
+            this.artists = artists;
+        }
+
+        public String displayName() { return name + " - " + artists; }
+    }
+
+    /** Up to {@code limit} track hits for {@code query}, best first. */
+    public CompletableFuture<List<SearchResult>> searchAsync(String query, int limit) {
+        return searchAsync(query, limit, Priority.INTERACTIVE);
+    }
+
+    /** As above; tab-completion searches pass {@link Priority#BACKGROUND} so they never cost a command its budget. */
+    public CompletableFuture<List<SearchResult>> searchAsync(String query, int limit, Priority priority) {
         String enc = URLEncoder.encode(query, StandardCharsets.UTF_8);
-        // NOTE: path is /search not /v1/search — BASE already contains /v1
-        String resp = request("GET", "/search?q=" + enc + "&type=track&limit=1", null);
-        if (resp == null || resp.isBlank()) return null;
+        // NOTE: path is /search not /v1/search — the base URL already contains /v1
+        String path = "/search?q=" + enc + "&type=track&limit=" + limit;
+        return singleFlight(ResponseCache.key("GET", path), () -> fetchAsync("GET", path, null, priority)
+                .thenApply(resp -> resp.isEmpty()
+                        ? List.<SearchResult>of()
+                        : List.copyOf(parse(() -> SpotifyJson.readSearchTracks(resp.stream(), limit)))));
+    }
 
-        JsonObject tracks = JsonParser.parseString(resp).getAsJsonObject().getAsJsonObject("tracks");
-        if (!tracks.has("items") || tracks.getAsJsonArray("items").isEmpty()) return null;
+    /** Plays the best hit for {@code query}; completes with its display name, or null if nothing matched. */
+    public CompletableFuture<String> searchAndPlayAsync(String query) {
+        return searchAndPlayAsync(query, () -> {});
+    }
 
-        JsonObject track = tracks.getAsJsonArray("items").get(0).getAsJsonObject();
-        String uri  = track.get("uri").getAsString();
-        String name = track.get("name").getAsString();
-        String artists = artistNames(track);
+    /** As above; {@code onFound} runs once a track has matched, just before the play request. */
+    public CompletableFuture<String> searchAndPlayAsync(String query, Runnable onFound) {
+        return searchAsync(query, 1).thenCompose(hits -> {
+            if (hits.isEmpty()) return CompletableFuture.completedFuture(null);
+            SearchResult track = hits.get(0);
+            onFound.run();
+            return playTrackAsync(track.uri).thenApply(v -> track.displayName());
+        });
+    }
 
-        request("PUT", "/me/player/play", "{\"uris\":[\"" + uri + "\"]}");
-        return name + " - " + artists;
+    /** Plays one {@code spotify:track:…} URI — no search round trip. */
+    public CompletableFuture<Void> playTrackAsync(String uri) {
+        return commandAsync("PUT", "/me/player/play", "{\"uris\":[\"" + uri + "\"]}");
+    }
+
+    public String searchAndPlay(String query) throws IOException, InterruptedException {
+        return await(searchAndPlayAsync(query));
+    }
+
+    /* ── full player state ─────────────────────────────────────────── */
+    /**
+     * One {@code GET /me/player}: track, progress, device, volume, shuffle
+     * and repeat in a single round trip.  Completes with
+     * {@link PlaybackSnapshot#NONE} when there is no active device (204).
+     */
+    public CompletableFuture<PlaybackSnapshot> getPlayerAsync(Priority priority) {
+        String path = "/me/player";
+        return singleFlight(ResponseCache.key("GET", path), () -> fetchAsync("GET", path, null, priority)
+                .thenApply(resp -> resp.isEmpty()
+                        ? PlaybackSnapshot.NONE
+                        : parse(() -> SpotifyJson.readPlayer(resp.stream(), resp.sampledAtNanos))));
+    }
+
+    public PlaybackSnapshot getPlayer() throws IOException, InterruptedException {
+        return await(getPlayerAsync(Priority.INTERACTIVE));
+    }
+
+    /* ── upcoming queue ──────────────────────────────────────────────── */
+    /** One entry of {@code /me/player/queue}: the track fields a prefetch needs. */
+    public static class QueuedTrack {
+        public final String trackId;
+        public final String name;
+        public final String artists;          // "A, B"
+        public final String albumId;          // Spotify album id or null
+        public final String albumImageUrl;    // album-art URL closest above 64 px (the 64×64 one) or null
+        public final long   durationMs;
+
+        public QueuedTrack(String trackId, String name, String artists, String albumId,
+                           String albumImageUrl, long durationMs) {
+            this.trackId       = trackId;
+            this.name          = name;
+            this.artists       = artists;
+            this.albumId       = albumId;
+            this.albumImageUrl = albumImageUrl;
+            this.durationMs    = durationMs;
+        }
+
+        public String displayName() { return name + " - " + artists; }
+
+        /** Same key as {@link PlaybackSnapshot#trackKey()} will have once this track plays. */
+        public String trackKey() { return trackId != null ? trackId : displayName(); }
+    }
+
+    /**
+     * The next {@code max} tracks Spotify will play, in order.  Completes
+     * with an empty list when there is no active device.
+     */
+    public CompletableFuture<List<QueuedTrack>> getQueueAsync(int max, Priority priority) {
+        String path = "/me/player/queue";
+        // the raw body is cached per path; the parsed list depends on max
+        return singleFlight(ResponseCache.key("GET", path) + " max=" + max, () -> fetchAsync("GET", path, null, priority)
+                .thenApply(resp -> resp.isEmpty()
+                        ? List.<QueuedTrack>of()
+                        : List.copyOf(parse(() -> SpotifyJson.readQueue(resp.stream(), max)))));
     }
 
     /* ── current track (display string only) ───────────────────────── */
     public String getCurrentTrackInfo() throws IOException, InterruptedException {
-        TrackData d = getCurrentTrackData();
-        return d != null ? d.displayName : null;
+        return getPlayer().displayName();
+    }
+
+    /* ── low-level HTTP ─────────────────────────────────────────────── */
+    private CompletableFuture<Void> commandAsync(String method, String path, String jsonBody) {
+        return fetchAsync(method, path, jsonBody, Priority.INTERACTIVE).thenApply(e -> null);
     }
 
-    /* ── current track (full data needed by the mod) ───────────────── */
     /**
-     * Returned by {@link #getCurrentTrackData()}.  All fields are populated
-     * when a track is playing; the method returns {@code null} when nothing plays.
+     * Sends one request.  GETs go through {@link ResponseCache}: a fresh
+     * entry is returned without a round trip, a stale one is revalidated
+     * with {@code If-None-Match} / {@code If-Modified-Since}.  Any other
+     * method invalidates cached playback state.
+     *
+     * The returned entry's {@code sampledAtNanos} is the midpoint of the
+     * round trip that produced the body — Spotify measured progress
+     * somewhere in between.
+     *
+     * Requests that do reach the network first take a permit from the
+     * {@link RequestScheduler}; a 429 starts its backoff.  Interactive
+     * requests wait the backoff out and retry once, everything else
+     * fails fast with {@link RequestScheduler.RateLimitedException}.
      */
-    public static class TrackData {
-        public final String displayName;      // "Song – Artist"
-        public final float  progressRatio;    // 0.0 – 1.0
-        public final String albumImageUrl;    // smallest album-art URL (64×64) or null
-
-        public TrackData(String displayName, float progressRatio, String albumImageUrl) {
-            this.displayName     = displayName;
-            this.progressRatio   = progressRatio;
-            this.albumImageUrl   = albumImageUrl;
+    private CompletableFuture<ResponseCache.Entry> fetchAsync(String method, String path, String jsonBody,
+                                                            Priority priority) {
+        if ("GET".equals(method)) {
+            ResponseCache.Entry hit = cache.fresh(ResponseCache.key(method, path), path, System.nanoTime());
+            if (hit != null) return CompletableFuture.completedFuture(hit);
         }
+        return new Call(method, path, jsonBody, priority).start();
     }
 
-    public TrackData getCurrentTrackData() throws IOException, InterruptedException {
-        String resp = request("GET", "/me/player/currently-playing", null);
-        if (resp == null || resp.isBlank()) return null;
+    /**
+     * One request on its way through permit → token → send → (refresh |
+     * backoff) → resend → cache.  {@link #stage} is whatever the call is
+     * currently waiting on, so completing {@link #result} early (cancel,
+     * timeout) can abort it.  The mutable fields are only touched by one
+     * stage at a time, each ordered after the previous by its future.
+     */
+    private final class Call {
+        final String   method;
+        final String   path;
+        final String   jsonBody;
+        final String   key;
+        final boolean  get;
+        final Priority priority;
+        final CompletableFuture<ResponseCache.Entry> result = new CompletableFuture<>();
+        volatile CompletableFuture<?> stage;
+
+        HttpRequest.Builder builder;
+        ResponseCache.Entry stale;
+        String              token;
+        long                sentAt;
+        long                firstSentAt;
+
+        Call(String method, String path, String jsonBody, Priority priority) {
+            this.method   = method;
+            this.path     = path;
+            this.jsonBody = jsonBody;
+            this.key      = ResponseCache.key(method, path);
+            this.get      = "GET".equals(method);
+            this.priority = priority;
+            result.whenComplete((e, ex) -> {
+                CompletableFuture<?> s = stage;
+                if (ex != null && s != null) s.cancel(true);
+            });
+        }
 
-        JsonObject json = JsonParser.parseString(resp).getAsJsonObject();
-        if (!json.has("item") || json.get("item").isJsonNull()) return null;
+        CompletableFuture<ResponseCache.Entry> start() {
+            track(scheduler.acquire(priority))
+                    .thenCompose(v -> track(tokens.validTokenAsync()))
+                    .thenCompose(this::send)
+                    .thenCompose(this::retryUnauthorized)
+                    .thenCompose(this::retryRateLimited)
+                    .thenApply(this::finish)
+                    .whenComplete((entry, ex) -> {
+                        if (ex == null) {
+                            result.complete(entry);
+                        } else {
+                            Throwable cause = unwrap(ex);
+                            if (!(cause instanceof CancellationException)) metrics.increment("api.errors");
+                            result.completeExceptionally(cause);
+                        }
+                    });
+            return result;
+        }
 
-        JsonObject item = json.getAsJsonObject("item");
+        /** Histogram name: method and path without the query string, e.g. "PUT /me/player/volume". */
+        private String endpoint() {
+            int q = path.indexOf('?');
+            return method + " " + (q < 0 ? path : path.substring(0, q));
+        }
 
-        // --- display name ---
-        String name    = item.get("name").getAsString();
-        String artists = artistNames(item);
-        String display = name + " - " + artists;
+        private <S> CompletableFuture<S> track(CompletableFuture<S> f) {
+            stage = f;
+            if (result.isDone()) f.cancel(true);          // abandoned while the previous stage finished
+            return f;
+        }
 
-        // --- progress ratio ---
-        long progressMs  = json.has("progress_ms") ? json.get("progress_ms").getAsLong() : 0;
-        long durationMs  = item.has("duration_ms") ? item.get("duration_ms").getAsLong() : 1;
-        float ratio      = (float) progressMs / durationMs;
+        private CompletableFuture<HttpResponse<byte[]>> send(String accessToken) {
+            token   = accessToken;
+            builder = http.newRequest(URI.create(base + path))
+                    .header("Authorization", "Bearer " + token);
+
+            switch (method) {
+                case "GET"  -> builder.GET();
+                case "PUT"  -> {
+                    if (jsonBody != null) { builder.header("Content-Type", "application/json"); builder.PUT(HttpRequest.BodyPublishers.ofString(jsonBody)); }
+                    else                   builder.PUT(HttpRequest.BodyPublishers.noBody());
+                }
+                case "POST" -> {
+                    if (jsonBody != null) { builder.header("Content-Type", "application/json"); builder.POST(HttpRequest.BodyPublishers.ofString(jsonBody)); }
+                    else                   builder.POST(HttpRequest.BodyPublishers.noBody());
+                }
+                default -> throw new IllegalArgumentException("Unsupported method: " + method);
+            }
 
-        // --- album image (pick smallest available, usually 64×64) ---
-        String imgUrl = null;
-        if (item.has("album")) {
-            JsonObject album = item.getAsJsonObject("album");
-            if (album.has("images") && album.getAsJsonArray("images").size() > 0) {
-                // images are ordered largest → smallest; grab the last one
-                var images = album.getAsJsonArray("images");
-                imgUrl = images.get(images.size() - 1).getAsJsonObject().get("url").getAsString();
+            stale = get ? cache.validators(key) : null;
+            if (stale != null) {
+                if (stale.etag != null)         builder.header("If-None-Match",     stale.etag);
+                if (stale.lastModified != null) builder.header("If-Modified-Since", stale.lastModified);
             }
+            firstSentAt = System.nanoTime();
+            return resend();
+        }
+
+        private CompletableFuture<HttpResponse<byte[]>> resend() {
+            sentAt = System.nanoTime();
+            return track(http.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        /* auto-refresh on 401 — concurrent callers share one refresh */
+        private CompletableFuture<HttpResponse<byte[]>> retryUnauthorized(HttpResponse<byte[]> resp) {
+            if (resp.statusCode() != 401) return CompletableFuture.completedFuture(resp);
+            SpotifyControlsMod.LOGGER.info("[SpotifyControls] token rejected — refreshing");
+            metrics.increment("api.401");
+            return track(tokens.refresh(token).copy()).thenCompose(fresh -> {
+                token = fresh;
+                builder.setHeader("Authorization", "Bearer " + fresh);
+                return resend();
+            });
+        }
+
+        /* 429 — back off for Retry-After; only commands are worth retrying */
+        private CompletableFuture<HttpResponse<byte[]>> retryRateLimited(HttpResponse<byte[]> resp) {
+            if (resp.statusCode() != 429) return CompletableFuture.completedFuture(resp);
+            long retryAfter = resp.headers().firstValue("Retry-After")
+                    .map(SpotifyAPI::parseRetryAfter).orElse(1L);
+            scheduler.onRateLimited(retryAfter);
+            metrics.increment("api.429");
+            if (priority != Priority.INTERACTIVE)
+                return CompletableFuture.failedFuture(
+                        new RequestScheduler.RateLimitedException("Spotify rate limit — retry in " + retryAfter + "s"));
+            return track(scheduler.acquire(priority)).thenCompose(v -> resend());   // waits out the backoff
         }
 
-        return new TrackData(display, ratio, imgUrl);
+        private ResponseCache.Entry finish(HttpResponse<byte[]> resp) {
+            long now       = System.nanoTime();
+            long sampledAt = sentAt + (now - sentAt) / 2;
+            int  code      = resp.statusCode();
+
+            // latency includes any refresh / backoff retry — it is what the caller waited
+            metrics.histogram(endpoint()).record(now - firstSentAt);
+            metrics.increment("api.requests");
+
+            if (code == 304 && stale != null) return cache.revalidated(stale, now);
+            if (code < 200 || code >= 300)
+                throw new CompletionException(new IOException("Spotify API " + code + ": "
+                        + new String(resp.body(), StandardCharsets.UTF_8)));
+
+            byte[] body = code == 204 ? new byte[0] : resp.body();   // 204 No Content — success
+            if (get) {
+                return cache.store(key, body,
+                        resp.headers().firstValue("ETag").orElse(null),
+                        resp.headers().firstValue("Last-Modified").orElse(null),
+                        sampledAt, now);
+            }
+            cache.invalidate(ResponseCache.key("GET", "/me/player"));
+            return new ResponseCache.Entry(body, null, null, sampledAt, now);
+        }
     }
 
-    /* ── low-level HTTP ─────────────────────────────────────────────── */
-    private String request(String method, String path, String jsonBody)
-            throws IOException, InterruptedException {
+    /* ── single-flight reads ─────────────────────────────────────────── */
+    /**
+     * Returns the in-flight read for {@code key}, or starts one.  Every
+     * caller gets its own copy of the shared future, so one of them
+     * cancelling only leaves the read; the request itself is cancelled
+     * once the last caller has left.  Results must be immutable — they
+     * are handed to every caller as-is.
+     */
+    private <T> CompletableFuture<T> singleFlight(String key, Supplier<CompletableFuture<T>> read) {
+        while (true) {
+            @SuppressWarnings("unchecked")
+            SharedRead<T> running = (SharedRead<T>) reads.get(key);
+            if (running != null) {
+                CompletableFuture<T> joined = running.join();
+                if (joined != null) {
+                    readsJoined.incrementAndGet();
+                    return joined;
+                }
+                continue;                                 // raced with its last caller leaving
+            }
 
-        String token = tokenStorage.getAccessToken();
-        if (token == null) throw new IOException("No access token — run /spotify login");
+            SharedRead<T> mine = new SharedRead<>(key);
+            if (reads.putIfAbsent(key, mine) != null) continue;
+            readsSent.incrementAndGet();
+            CompletableFuture<T> first = mine.join();
+            mine.start(read.get());
+            return first;
+        }
+    }
 
-        HttpRequest.Builder b = HttpRequest.newBuilder()
-                .uri(URI.create(BASE + path))
-                .header("Authorization", "Bearer " + token);
+    /** One read shared by every caller that asked for it while it was in flight. */
+    private final class SharedRead<T> {
+        final String               key;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T>       request;               // guarded by this
+        int                        callers;               // guarded by this
+        boolean                    closed;                // guarded by this
+
+        SharedRead(String key) { this.key = key; }
+
+        void start(CompletableFuture<T> f) {
+            boolean abandoned;
+            synchronized (this) {
+                request   = f;
+                abandoned = closed;
+            }
+            if (abandoned) f.cancel(true);
+            f.whenComplete((v, ex) -> {
+                synchronized (this) { closed = true; }
+                reads.remove(key, this);
+                if (ex == null) result.complete(v);
+                else            result.completeExceptionally(unwrap(ex));
+            });
+        }
 
-        switch (method) {
-            case "GET"  -> b.GET();
-            case "PUT"  -> {
-                if (jsonBody != null) { b.header("Content-Type", "application/json"); b.PUT(HttpRequest.BodyPublishers.ofString(jsonBody)); }
-                else                   b.PUT(HttpRequest.BodyPublishers.noBody());
+        /** A private view of the result, or null if this read is already over. */
+        CompletableFuture<T> join() {
+            synchronized (this) {
+                if (closed) return null;
+                callers++;
             }
-            case "POST" -> {
-                if (jsonBody != null) { b.header("Content-Type", "application/json"); b.POST(HttpRequest.BodyPublishers.ofString(jsonBody)); }
-                else                   b.POST(HttpRequest.BodyPublishers.noBody());
+            CompletableFuture<T> view = result.copy();
+            view.whenComplete((v, ex) -> { if (ex != null && !result.isDone()) leave(); });
+            return view;
+        }
+
+        private void leave() {
+            CompletableFuture<T> f;
+            synchronized (this) {
+                if (--callers > 0 || closed) return;
+                closed = true;
+                f = request;
             }
-            default -> throw new IllegalArgumentException("Unsupported method: " + method);
+            reads.remove(key, this);
+            if (f != null) f.cancel(true);
+            result.cancel(true);
         }
+    }
 
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    /* ── future helpers ─────────────────────────────────────────────── */
+    @FunctionalInterface
+    private interface IoSupplier<T> { T get() throws IOException; }
 
-        /* auto-refresh on 401 */
-        if (resp.statusCode() == 401) {
-            SpotifyControlsMod.LOGGER.info("[SpotifyControls] token expired — refreshing");
-            SpotifyControlsMod.getSpotifyAuth().refreshToken();
+    private static <T> T parse(IoSupplier<T> parser) {
+        try {
+            return parser.get();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
 
-            token = tokenStorage.getAccessToken();
-            b.header("Authorization", "Bearer " + token);
-            resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    /** Blocks for {@code f}; interrupting the caller cancels the request. */
+    private static <T> T await(CompletableFuture<T> f) throws IOException, InterruptedException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io)        throw io;
+            if (cause instanceof RuntimeException rt)   throw rt;
+            throw new IOException(cause.getMessage(), cause);
         }
+    }
 
-        int code = resp.statusCode();
-        if (code == 204) return "";                           // No Content — success
-        if (code >= 200 && code < 300) return resp.body();
-        throw new IOException("Spotify API " + code + ": " + resp.body());
+    /** Strips the {@link CompletionException} wrapper dependent stages add. */
+    public static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+        return t;
     }
 
-    /* ── util ───────────────────────────────────────────────────────── */
-    private static String artistNames(JsonObject trackOrItem) {
-        if (!trackOrItem.has("artists")) return "Unknown";
-        var sb = new StringBuilder();
-        for (var el : trackOrItem.getAsJsonArray("artists")) {
-            if (sb.length() > 0) sb.append(", ");
-            sb.append(el.getAsJsonObject().get("name").getAsString());
+    private static long parseRetryAfter(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 1;                                              // HTTP-date form — not used by Spotify
         }
-        return sb.toString();
     }
+
+    public ResponseCache    getResponseCache()    { return cache;     }
+    public RequestScheduler getRequestScheduler() { return scheduler; }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    /** Reads actually started (each may still be answered by the cache). */
+    public long readsSent()   { return readsSent.get();   }
+    /** Requests saved: callers that joined a read already in flight. */
+    public long readsJoined() { return readsJoined.get(); }
 }
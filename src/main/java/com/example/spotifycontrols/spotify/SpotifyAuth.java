@@ -10,7 +10,6 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
@@ -23,14 +22,14 @@ public class SpotifyAuth {
     
     // IMPORTANT: Replace these with your own Spotify App credentials
     // Get them from: https://developer.spotify.com/dashboard
-    private static final String CLIENT_ID = "Client ID";
-    private static final String CLIENT_SECRET = "Client Secret";
+    private static final String CLIENT_ID = "YOUR_CLIENT_ID_HERE";
+    private static final String CLIENT_SECRET = "YOUR_CLIENT_SECRET_HERE";
     // Using 127.0.0.1 instead of localhost per Spotify security requirements
-    private static final String REDIRECT_URI = "Redirect url";
-    private static final int PORT = Port;
+    private static final String REDIRECT_URI = "http://127.0.0.1:8888/callback";
+    private static final int PORT = 8888;
     
     private static final String AUTH_URL = "https://accounts.spotify.com/authorize";
-    private static final String TOKEN_URL = "https://accounts.spotify.com/api/token";
+    public static final String DEFAULT_TOKEN_URL = "https://accounts.spotify.com/api/token";
     
     // Scopes needed for playback control
     private static final String SCOPES = String.join(" ", 
@@ -40,10 +39,19 @@ public class SpotifyAuth {
     );
     
     private final TokenStorage tokenStorage;
+    private final HttpTransport http;
+    private final String tokenUrl;
     private HttpServer server;
     
-    public SpotifyAuth(TokenStorage tokenStorage) {
+    // Token endpoint can be pointed elsewhere (e.g. a local test server) with -Dspotifycontrols.auth.tokenUrl
+    public SpotifyAuth(TokenStorage tokenStorage, HttpTransport http) {
+        this(tokenStorage, http, System.getProperty("spotifycontrols.auth.tokenUrl", DEFAULT_TOKEN_URL));
+    }
+    
+    public SpotifyAuth(TokenStorage tokenStorage, HttpTransport http, String tokenUrl) {
         this.tokenStorage = tokenStorage;
+        this.http = http;
+        this.tokenUrl = tokenUrl;
     }
     
     public void startAuthFlow() throws IOException {
@@ -129,8 +137,6 @@ public class SpotifyAuth {
     }
     
     private void exchangeCodeForToken(String code) throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newHttpClient();
-        
         String body = buildQueryString(Map.of(
             "grant_type", "authorization_code",
             "code", code,
@@ -140,14 +146,13 @@ public class SpotifyAuth {
         String auth = CLIENT_ID + ":" + CLIENT_SECRET;
         String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
         
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(TOKEN_URL))
+        HttpRequest request = http.newRequest(URI.create(tokenUrl))
             .header("Content-Type", "application/x-www-form-urlencoded")
             .header("Authorization", "Basic " + encodedAuth)
             .POST(HttpRequest.BodyPublishers.ofString(body))
             .build();
         
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
         
         if (response.statusCode() == 200) {
             tokenStorage.saveTokenResponse(response.body());
@@ -163,8 +168,6 @@ public class SpotifyAuth {
             throw new IOException("No refresh token available");
         }
         
-        HttpClient client = HttpClient.newHttpClient();
-        
         String body = buildQueryString(Map.of(
             "grant_type", "refresh_token",
             "refresh_token", refreshToken
@@ -173,14 +176,13 @@ public class SpotifyAuth {
         String auth = CLIENT_ID + ":" + CLIENT_SECRET;
         String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
         
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(TOKEN_URL))
+        HttpRequest request = http.newRequest(URI.create(tokenUrl))
             .header("Content-Type", "application/x-www-form-urlencoded")
             .header("Authorization", "Basic " + encodedAuth)
             .POST(HttpRequest.BodyPublishers.ofString(body))
             .build();
         
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
         
         if (response.statusCode() == 200) {
             tokenStorage.saveTokenResponse(response.body());
@@ -0,0 +1,288 @@
+package com.example.spotifycontrols.spotify;
+
+import com.example.spotifycontrols.art.ImageIngest;
+import com.example.spotifycontrols.playback.PlaybackSnapshot;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streaming readers for the Spotify responses the mod actually parses.
+ *
+ * A player or search payload is mostly {@code available_markets}
+ * arrays, external ids and URLs we never look at.  Instead of building a
+ * full {@code JsonObject} tree we walk the token stream once, keep the
+ * handful of fields we need and {@link JsonReader#skipValue() skip} every
+ * other subtree without materialising it.
+ */
+public final class SpotifyJson {
+
+    private SpotifyJson() {}
+
+    /* ── /me/player ────────────────────────────────────────────────── */
+    /**
+     * Reads a non-empty player-state response: the current item plus
+     * device, volume, shuffle and repeat.  The track fields are null when
+     * the device is idle or playing an ad.
+     *
+     * @param sampledAtNanos the local time the body describes, see {@link PlaybackSnapshot}
+     */
+    public static PlaybackSnapshot readPlayer(InputStream in, long sampledAtNanos) throws IOException {
+        try (JsonReader r = reader(in)) {
+            long    progressMs = 0;
+            boolean playing    = false;
+            boolean shuffle    = false;
+            String  repeat     = "off";
+            Device  device     = new Device();
+            Item    item       = null;
+
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "progress_ms"   -> progressMs = nextLong(r, 0);
+                    case "is_playing"    -> playing    = nextBoolean(r);
+                    case "shuffle_state" -> shuffle    = nextBoolean(r);
+                    case "repeat_state"  -> repeat     = Objects.requireNonNullElse(nextString(r), "off");
+                    case "device"        -> readDevice(r, device);
+                    case "item"          -> item       = readItem(r);
+                    default              -> r.skipValue();
+                }
+            }
+            r.endObject();
+
+            if (item == null) item = new Item();
+            return new PlaybackSnapshot(item.id, item.name, item.artists, item.albumId, item.imageUrl,
+                    item.durationMs, progressMs, playing,
+                    device.id, device.name, device.volumePercent, shuffle, repeat,
+                    sampledAtNanos, null);
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed player response", e);
+        }
+    }
+
+    /* ── /me/player/queue ──────────────────────────────────────────── */
+    /**
+     * Reads the first {@code max} entries of the upcoming queue; the rest of
+     * the array, and the currently playing item, are skipped unparsed.
+     * Entries without a name (unavailable tracks) are left out.
+     */
+    public static List<SpotifyAPI.QueuedTrack> readQueue(InputStream in, int max) throws IOException {
+        List<SpotifyAPI.QueuedTrack> upcoming = new ArrayList<>(Math.min(max, 4));
+        try (JsonReader r = reader(in)) {
+            r.beginObject();
+            while (r.hasNext()) {
+                if (!"queue".equals(r.nextName()) || r.peek() != JsonToken.BEGIN_ARRAY) { r.skipValue(); continue; }
+                r.beginArray();
+                while (r.hasNext()) {
+                    if (upcoming.size() >= max) { r.skipValue(); continue; }
+                    Item item = readItem(r);
+                    if (item != null && item.name != null)
+                        upcoming.add(new SpotifyAPI.QueuedTrack(item.id, item.name, item.artists,
+                                item.albumId, item.imageUrl, item.durationMs));
+                }
+                r.endArray();
+            }
+            r.endObject();
+            return upcoming;
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed queue response", e);
+        }
+    }
+
+    private static final class Device {
+        String id;
+        String name;
+        int    volumePercent = -1;
+    }
+
+    private static void readDevice(JsonReader r, Device device) throws IOException {
+        if (r.peek() == JsonToken.NULL) { r.nextNull(); return; }
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "id"             -> device.id            = nextString(r);
+                case "name"           -> device.name          = nextString(r);
+                case "volume_percent" -> device.volumePercent = (int) nextLong(r, -1);
+                default               -> r.skipValue();
+            }
+        }
+        r.endObject();
+    }
+
+    /** The few track-object fields we keep. */
+    private static final class Item {
+        String id;
+        String name;
+        String artists    = "Unknown";
+        String imageUrl;
+        String albumId;
+        long   durationMs = 1;
+    }
+
+    private static Item readItem(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) { r.nextNull(); return null; }
+        Item item = new Item();
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "id"          -> item.id         = nextString(r);
+                case "name"        -> item.name       = nextString(r);
+                case "artists"     -> item.artists    = readArtistNames(r);
+                case "duration_ms" -> item.durationMs = Math.max(1, nextLong(r, 1));
+                case "album"       -> readAlbum(r, item);
+                default            -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return item;
+    }
+
+    /** Album id plus the image best sized for {@link ImageIngest#TARGET_SIZE}. */
+    private static void readAlbum(JsonReader r, Item item) throws IOException {
+        if (r.peek() == JsonToken.NULL) { r.nextNull(); return; }
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "id"     -> item.albumId  = nextString(r);
+                case "images" -> item.imageUrl = readBestImageUrl(r, ImageIngest.TARGET_SIZE);
+                default       -> r.skipValue();
+            }
+        }
+        r.endObject();
+    }
+
+    /**
+     * The smallest image that is still at least {@code target} px on its
+     * short side, else the largest one there is.  Does not rely on the
+     * array's order; entries without dimensions are used only when no
+     * entry has any.
+     */
+    static String readBestImageUrl(JsonReader r, int target) throws IOException {
+        if (r.peek() != JsonToken.BEGIN_ARRAY) { r.skipValue(); return null; }
+        String best = null, unsized = null;
+        long   bestSide = -1;
+        r.beginArray();
+        while (r.hasNext()) {
+            String url = null;
+            long   w = -1, h = -1;
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "url"    -> url = nextString(r);
+                    case "width"  -> w   = nextLong(r, -1);
+                    case "height" -> h   = nextLong(r, -1);
+                    default       -> r.skipValue();
+                }
+            }
+            r.endObject();
+            if (url == null) continue;
+
+            long side = Math.min(w, h);
+            if (side <= 0) {
+                unsized = url;
+                continue;
+            }
+            boolean better = bestSide < 0
+                    || (side >= target ? bestSide < target || side < bestSide : side > bestSide);
+            if (better) {
+                best     = url;
+                bestSide = side;
+            }
+        }
+        r.endArray();
+        return best != null ? best : unsized;
+    }
+
+    /* ── /search?type=track ───────────────────────────────────────── */
+    /** Reads up to {@code max} track hits from a search response. */
+    public static List<SpotifyAPI.SearchResult> readSearchTracks(InputStream in, int max)
+            throws IOException {
+        List<SpotifyAPI.SearchResult> hits = new ArrayList<>(Math.min(max, 10));
+        try (JsonReader r = reader(in)) {
+            r.beginObject();
+            while (r.hasNext()) {
+                if (!"tracks".equals(r.nextName())) { r.skipValue(); continue; }
+                r.beginObject();
+                while (r.hasNext()) {
+                    if (!"items".equals(r.nextName())) { r.skipValue(); continue; }
+                    r.beginArray();
+                    while (r.hasNext()) {
+                        if (hits.size() >= max) { r.skipValue(); continue; }
+                        SpotifyAPI.SearchResult hit = readSearchTrack(r);
+                        if (hit != null) hits.add(hit);
+                    }
+                    r.endArray();
+                }
+                r.endObject();
+            }
+            r.endObject();
+            return hits;
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed search response", e);
+        }
+    }
+
+    private static SpotifyAPI.SearchResult readSearchTrack(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) { r.nextNull(); return null; }
+        String uri = null, name = null, artists = "Unknown";
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "uri"     -> uri     = nextString(r);
+                case "name"    -> name    = nextString(r);
+                case "artists" -> artists = readArtistNames(r);
+                default        -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return uri != null && name != null ? new SpotifyAPI.SearchResult(uri, name, artists) : null;
+    }
+
+    /* ── shared pieces ────────────────────────────────────────────── */
+    /** "A, B, C" from an artists array; "Unknown" when empty or null. */
+    static String readArtistNames(JsonReader r) throws IOException {
+        if (r.peek() != JsonToken.BEGIN_ARRAY) { r.skipValue(); return "Unknown"; }
+        StringBuilder sb = new StringBuilder(32);
+        r.beginArray();
+        while (r.hasNext()) {
+            r.beginObject();
+            while (r.hasNext()) {
+                if ("name".equals(r.nextName()) && r.peek() == JsonToken.STRING) {
+                    if (sb.length() > 0) sb.append(", ");
+                    sb.append(r.nextString());
+                } else {
+                    r.skipValue();
+                }
+            }
+            r.endObject();
+        }
+        r.endArray();
+        return sb.length() > 0 ? sb.toString() : "Unknown";
+    }
+
+    private static JsonReader reader(InputStream in) {
+        return new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static String nextString(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) { r.nextNull(); return null; }
+        return r.nextString();
+    }
+
+    private static long nextLong(JsonReader r, long fallback) throws IOException {
+        if (r.peek() != JsonToken.NUMBER) { r.skipValue(); return fallback; }
+        return r.nextLong();
+    }
+
+    private static boolean nextBoolean(JsonReader r) throws IOException {
+        if (r.peek() != JsonToken.BOOLEAN) { r.skipValue(); return false; }
+        return r.nextBoolean();
+    }
+}
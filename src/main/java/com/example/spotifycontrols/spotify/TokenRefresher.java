@@ -0,0 +1,118 @@
+package com.example.spotifycontrols.spotify;
+
+import com.example.spotifycontrols.SpotifyControlsMod;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the access token valid.
+ *
+ * A background check renews the token shortly before it expires, so
+ * commands normally never see an expired one.  When a refresh is needed
+ * anyway — an early 401, or the game was suspended past expiry — every
+ * caller shares a single in-flight refresh instead of each hitting the
+ * token endpoint.
+ */
+public class TokenRefresher {
+
+    private static final long CHECK_INTERVAL_SECONDS = 30;
+
+    private final TokenStorage             storage;
+    private final SpotifyAuth              auth;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<CompletableFuture<String>> inFlight = new AtomicReference<>();
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong joined    = new AtomicLong();
+    private final AtomicLong failures  = new AtomicLong();
+
+    public TokenRefresher(TokenStorage storage, SpotifyAuth auth) {
+        this.storage   = storage;
+        this.auth      = auth;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SpotifyControls-TokenRefresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /* ── lifecycle ────────────────────────────────────────────────── */
+    /** Starts the proactive check; it renews within the last 5 minutes of a token's life. */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (storage.snapshot().needsRefresh(System.currentTimeMillis()))
+                refresh(null);
+        }, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() { scheduler.shutdownNow(); }
+
+    /* ── access ───────────────────────────────────────────────────── */
+    /**
+     * A usable access token, after a refresh first if the stored one has
+     * already expired.  A refresh, if needed, is handed out as a copy, so
+     * a caller cancelling its future never aborts the refresh other
+     * callers share.
+     */
+    public CompletableFuture<String> validTokenAsync() {
+        TokenStorage.TokenSnapshot t = storage.snapshot();
+        if (!t.isExpired(System.currentTimeMillis())) return CompletableFuture.completedFuture(t.accessToken);
+        if (t.refreshToken == null)
+            return CompletableFuture.failedFuture(new IOException("No access token — run /spotify login"));
+        return refresh(null).copy();
+    }
+
+    /**
+     * Refreshes the token, sharing any refresh already in flight.
+     *
+     * @param rejected the token a 401 was returned for, or null.  If the
+     *                 stored token has already moved on, it is returned
+     *                 without another refresh.
+     */
+    public CompletableFuture<String> refresh(String rejected) {
+        TokenStorage.TokenSnapshot t = storage.snapshot();
+        if (rejected != null && t.accessToken != null && !rejected.equals(t.accessToken)
+                && !t.isExpired(System.currentTimeMillis()))
+            return CompletableFuture.completedFuture(t.accessToken);
+
+        while (true) {
+            CompletableFuture<String> running = inFlight.get();
+            if (running != null) {
+                joined.incrementAndGet();
+                return running;
+            }
+            CompletableFuture<String> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                scheduler.execute(() -> runRefresh(mine));
+                return mine;
+            }
+        }
+    }
+
+    private void runRefresh(CompletableFuture<String> result) {
+        try {
+            SpotifyControlsMod.LOGGER.info("[SpotifyControls] refreshing access token");
+            auth.refreshToken();
+            refreshes.incrementAndGet();
+            result.complete(storage.snapshot().accessToken);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            SpotifyControlsMod.LOGGER.warn("[SpotifyControls] token refresh failed: " + e.getMessage());
+            result.completeExceptionally(e);
+        } finally {
+            inFlight.compareAndSet(result, null);
+        }
+    }
+
+    /* ── stats ────────────────────────────────────────────────────── */
+    public long refreshes() { return refreshes.get(); }
+    /** Callers that waited on another caller's refresh instead of starting their own. */
+    public long joined()    { return joined.get();    }
+    public long failures()  { return failures.get();  }
+}
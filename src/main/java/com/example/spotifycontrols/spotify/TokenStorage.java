@@ -6,89 +6,276 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Holds the Spotify credentials and keeps {@code spotify.json} in step.
+ *
+ * Nothing touches the disk on construction.  The file is read by
+ * {@link #warmUpAsync()} on the writer thread, or by whichever background
+ * caller needs a token first.  {@link #hasToken()} and
+ * {@link #clearToken()} never read the file, so the client thread can
+ * call them at any time.  Saves are write-behind: the newest snapshot is
+ * parked and written a moment later by the writer thread, so a burst of
+ * saves costs one write.  Each write goes to a temp file, is forced to
+ * disk and then moved over the real file, so a crash mid-write leaves
+ * the old token in place instead of a truncated file.
+ */
 public class TokenStorage {
     
     private static final String CONFIG_DIR = "config/spotifycontrols";
     private static final String TOKEN_FILE = "spotify.json";
+    // Saves arriving within this window are written once
+    private static final long WRITE_DELAY_MS = 250;
+    // How long shutdown waits for the last write
+    private static final long FLUSH_TIMEOUT_MS = 2000;
+    // A failed write is retried after this, doubling up to MAX_RETRY_MS
+    private static final long MAX_RETRY_MS = 60000;
     
-    private String accessToken;
-    private String refreshToken;
-    private long expiresAt;
+    // Refresh this long before the real expiry
+    static final long REFRESH_AHEAD_MS = 300000;
+    // Treat the token as expired slightly early to allow for clock skew and latency
+    private static final long EXPIRY_SKEW_MS = 10000;
+    
+    /**
+     * One immutable set of credentials.  A refresh publishes a whole new
+     * snapshot, so readers on any thread never see a new access token
+     * paired with an old expiry.
+     */
+    public static final class TokenSnapshot {
+        static final TokenSnapshot EMPTY = new TokenSnapshot(null, null, 0);
+        // Also empty, but set by clearToken, so a load that finishes afterwards keeps it
+        static final TokenSnapshot CLEARED = new TokenSnapshot(null, null, 0);
+        
+        public final String accessToken;
+        public final String refreshToken;
+        public final long expiresAt;
+        
+        TokenSnapshot(String accessToken, String refreshToken, long expiresAt) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.expiresAt = expiresAt;
+        }
+        
+        public boolean isExpired(long nowMs) {
+            return accessToken == null || nowMs >= expiresAt - EXPIRY_SKEW_MS;
+        }
+        
+        public boolean needsRefresh(long nowMs) {
+            return refreshToken != null && nowMs >= expiresAt - REFRESH_AHEAD_MS;
+        }
+    }
+    
+    private final AtomicReference<TokenSnapshot> token = new AtomicReference<>(TokenSnapshot.EMPTY);
     
     private final Gson gson;
-    private final File configFile;
+    private final Path configFile;
+    private final Path tempFile;
+    
+    // Lazy load: volatile flag for the fast path, lock for the one real read
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+    
+    // Write-behind: the snapshot still to be written (EMPTY means delete), null when idle
+    private final AtomicReference<TokenSnapshot> pending = new AtomicReference<>();
+    private final ScheduledExecutorService writer;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private long retryDelayMs = WRITE_DELAY_MS;     // writer thread only
     
     public TokenStorage() {
+        this(Path.of(CONFIG_DIR, TOKEN_FILE));
+    }
+    
+    public TokenStorage(Path configFile) {
         this.gson = new GsonBuilder().setPrettyPrinting().create();
-        
-        // Ensure config directory exists
-        File configDir = new File(CONFIG_DIR);
-        if (!configDir.exists()) {
-            configDir.mkdirs();
+        this.configFile = configFile;
+        this.tempFile = configFile.resolveSibling(configFile.getFileName() + ".tmp");
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SpotifyControls-TokenIO");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /* ── loading ──────────────────────────────────────────────────── */
+    /** Reads the token file on the writer thread, so client init does no file I/O. */
+    public CompletableFuture<Void> warmUpAsync() {
+        return CompletableFuture.runAsync(this::ensureLoaded, writer);
+    }
+    
+    /** True once the token file has been read (or found missing). */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (loadLock) {
+            if (loaded) return;
+            loadToken();
+            loaded = true;
         }
-        
-        this.configFile = new File(configDir, TOKEN_FILE);
-        
-        // Load existing token if available
-        loadToken();
     }
     
-    public void saveTokenResponse(String jsonResponse) {
+    /**
+     * Stores the credentials from a token endpoint response.
+     *
+     * @throws IOException if the response carries no usable access token;
+     *         nothing is stored then, so a refresh can't pass the old token off as new
+     */
+    public void saveTokenResponse(String jsonResponse) throws IOException {
+        ensureLoaded();         // a refresh response may rely on the stored refresh token
+        TokenSnapshot next;
         try {
             JsonObject json = JsonParser.parseString(jsonResponse).getAsJsonObject();
+            if (!json.has("access_token") || !json.has("expires_in"))
+                throw new IOException("Token response has no access_token / expires_in");
             
-            this.accessToken = json.get("access_token").getAsString();
-            
-            if (json.has("refresh_token")) {
-                this.refreshToken = json.get("refresh_token").getAsString();
-            }
-            
+            String accessToken = json.get("access_token").getAsString();
             int expiresIn = json.get("expires_in").getAsInt();
-            this.expiresAt = System.currentTimeMillis() + (expiresIn * 1000L);
+            long expiresAt = System.currentTimeMillis() + (expiresIn * 1000L);
             
-            saveToken();
+            // A refresh response may omit refresh_token; keep the one we have
+            next = token.updateAndGet(old -> new TokenSnapshot(
+                accessToken,
+                json.has("refresh_token") ? json.get("refresh_token").getAsString() : old.refreshToken,
+                expiresAt));
             
-        } catch (Exception e) {
-            SpotifyControlsMod.LOGGER.error("Failed to parse token response: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to parse token response: " + e.getMessage(), e);
         }
+        
+        saveToken(next);
     }
     
-    private void saveToken() {
-        try (FileWriter writer = new FileWriter(configFile)) {
-            JsonObject json = new JsonObject();
-            json.addProperty("access_token", accessToken);
-            json.addProperty("refresh_token", refreshToken);
-            json.addProperty("expires_at", expiresAt);
+    /* ── write-behind ─────────────────────────────────────────────── */
+    /** Parks {@code snapshot} for the writer; a write already scheduled picks it up instead. */
+    private void saveToken(TokenSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) != null) {
+            coalesced.incrementAndGet();
+            return;
+        }
+        try {
+            writer.schedule(this::writePending, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            writePending();     // shut down already; write on the caller
+        }
+    }
+    
+    /** After a failed write: try again later, backing off while the disk keeps failing. */
+    private void scheduleRetry() {
+        long delay = retryDelayMs;
+        retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_MS);
+        try {
+            writer.schedule(this::writePending, delay, TimeUnit.MILLISECONDS);
+            SpotifyControlsMod.LOGGER.warn("Retrying token save in " + delay + " ms");
+        } catch (RejectedExecutionException e) {
+            // shutting down; the final flush was the last chance
+        }
+    }
+    
+    private void writePending() {
+        TokenSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) return;
+        
+        try {
+            if (snapshot == TokenSnapshot.EMPTY) {
+                Files.deleteIfExists(configFile);
+                retryDelayMs = WRITE_DELAY_MS;
+                SpotifyControlsMod.LOGGER.info("Token file deleted");
+                return;
+            }
             
-            gson.toJson(json, writer);
+            JsonObject json = new JsonObject();
+            json.addProperty("access_token", snapshot.accessToken);
+            json.addProperty("refresh_token", snapshot.refreshToken);
+            json.addProperty("expires_at", snapshot.expiresAt);
+            writeAtomically(gson.toJson(json).getBytes(StandardCharsets.UTF_8));
+            writes.incrementAndGet();
+            retryDelayMs = WRITE_DELAY_MS;
             
             SpotifyControlsMod.LOGGER.info("Token saved successfully");
             
         } catch (IOException e) {
+            failedWrites.incrementAndGet();
             SpotifyControlsMod.LOGGER.error("Failed to save token: " + e.getMessage());
+            // Put it back and retry, unless a newer save arrived meanwhile — that one scheduled its own write
+            if (pending.compareAndSet(null, snapshot)) scheduleRetry();
+        }
+    }
+    
+    /** Temp file, fsync, then rename over the real file. */
+    private void writeAtomically(byte[] bytes) throws IOException {
+        Path dir = configFile.getParent();
+        if (dir != null) Files.createDirectories(dir);
+        
+        try (FileChannel ch = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        try {
+            Files.move(tempFile, configFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, configFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Writes whatever is still pending and stops the writer thread.
+     * Called when the client stops; waits at most a couple of seconds.
+     */
+    public void shutdown() {
+        try {
+            writer.submit(this::writePending).get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException | RejectedExecutionException e) {
+            SpotifyControlsMod.LOGGER.warn("Token flush on shutdown failed: " + e);
         }
+        writer.shutdownNow();
     }
     
+    /* ── reading ──────────────────────────────────────────────────── */
     private void loadToken() {
-        if (!configFile.exists()) {
+        if (!Files.exists(configFile)) {
             SpotifyControlsMod.LOGGER.info("No existing token file found");
             return;
         }
         
-        try (FileReader reader = new FileReader(configFile)) {
+        try (Reader reader = Files.newBufferedReader(configFile, StandardCharsets.UTF_8)) {
             JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
             
-            this.accessToken = json.has("access_token") ? json.get("access_token").getAsString() : null;
-            this.refreshToken = json.has("refresh_token") ? json.get("refresh_token").getAsString() : null;
-            this.expiresAt = json.has("expires_at") ? json.get("expires_at").getAsLong() : 0;
+            TokenSnapshot fromFile = new TokenSnapshot(
+                json.has("access_token") ? json.get("access_token").getAsString() : null,
+                json.has("refresh_token") ? json.get("refresh_token").getAsString() : null,
+                json.has("expires_at") ? json.get("expires_at").getAsLong() : 0);
+            // a login or logout that happened while we were reading wins
+            token.compareAndSet(TokenSnapshot.EMPTY, fromFile);
             
             // Check if token is expired
-            if (isTokenExpired()) {
+            if (fromFile.isExpired(System.currentTimeMillis())) {
                 SpotifyControlsMod.LOGGER.info("Token loaded but expired");
             } else {
                 SpotifyControlsMod.LOGGER.info("Token loaded successfully");
@@ -99,38 +286,48 @@ public class TokenStorage {
         }
     }
     
+    /* ── access ───────────────────────────────────────────────────── */
+    /** The current credentials; reads the file first if the warm-up hasn't, so keep it off the client thread. */
+    public TokenSnapshot snapshot() {
+        ensureLoaded();
+        return token.get();
+    }
+    
+    /** The access token, or null once it has really expired (see {@link TokenRefresher}). */
     public String getAccessToken() {
-        if (isTokenExpired()) {
-            return null;
-        }
-        return accessToken;
+        TokenSnapshot t = snapshot();
+        return t.isExpired(System.currentTimeMillis()) ? null : t.accessToken;
     }
     
     public String getRefreshToken() {
-        return refreshToken;
+        return snapshot().refreshToken;
     }
     
+    /**
+     * True while we can authenticate — with a live access token or by refreshing.
+     * Never blocks: until the token file has been read this is false, i.e. not logged in yet.
+     */
     public boolean hasToken() {
-        return accessToken != null && !isTokenExpired();
-    }
-    
-    private boolean isTokenExpired() {
-        if (accessToken == null) {
-            return true;
-        }
-        // Add 5 minute buffer before actual expiration
-        return System.currentTimeMillis() >= (expiresAt - 300000);
+        if (!loaded) return false;
+        TokenSnapshot t = token.get();
+        return t.refreshToken != null || !t.isExpired(System.currentTimeMillis());
     }
     
+    /** Logs out.  Doesn't wait for the file to be read; a load still running can't bring the token back. */
     public void clearToken() {
-        this.accessToken = null;
-        this.refreshToken = null;
-        this.expiresAt = 0;
-        
-        if (configFile.exists()) {
-            configFile.delete();
-        }
+        token.set(TokenSnapshot.CLEARED);
+        saveToken(TokenSnapshot.EMPTY);
         
         SpotifyControlsMod.LOGGER.info("Token cleared");
     }
+    
+    /* ── stats ────────────────────────────────────────────────────── */
+    /** Token files written (deletes not counted). */
+    public long writes() { return writes.get(); }
+    
+    /** Saves folded into a write that was already scheduled. */
+    public long coalescedSaves() { return coalesced.get(); }
+    
+    /** Writes that failed and were retried. */
+    public long failedWrites() { return failedWrites.get(); }
 }